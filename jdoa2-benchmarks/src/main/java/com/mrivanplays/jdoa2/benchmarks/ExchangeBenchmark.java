@@ -0,0 +1,89 @@
+package com.mrivanplays.jdoa2.benchmarks;
+
+import com.mrivanplays.jdoa2.CurrentUser;
+import com.mrivanplays.jdoa2.DiscordToken;
+import com.mrivanplays.jdoa2.Guild;
+import com.mrivanplays.jdoa2.JDOA2;
+import com.mrivanplays.jdoa2.SessionManager;
+import com.mrivanplays.jdoa2.stub.DiscordStubServer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The full OAuth2 callback flow of a session against a {@link DiscordStubServer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class ExchangeBenchmark {
+
+    @Param({"100"})
+    public int guildCount;
+
+    private DiscordStubServer server;
+    private SessionManager sessionManager;
+    private final AtomicLong nextAuthCode = new AtomicLong();
+
+    @Setup
+    public void setup() throws IOException {
+        server = DiscordStubServer.builder().guildCount(guildCount).start();
+        sessionManager = SessionManager.builder()
+                .clientId("332269999912132097")
+                .clientSecret("937it3ow87i4ery69876wqire")
+                .redirectUri("https://example.com/oauth2/callback")
+                .baseUrl(server.getBaseUrl())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public DiscordToken exchange() {
+        String authCode = "code-" + nextAuthCode.incrementAndGet();
+        try {
+            return sessionManager.newSession(authCode).doTokenExchange();
+        } finally {
+            sessionManager.removeSession(authCode);
+        }
+    }
+
+    @Benchmark
+    public void callback(Blackhole blackhole) {
+        String authCode = "code-" + nextAuthCode.incrementAndGet();
+        try {
+            JDOA2 session = sessionManager.newSession(authCode);
+            blackhole.consume(session.doTokenExchange());
+            CurrentUser user = session.getCurrentUser().execute();
+            List<Guild> guilds = session.getCurrentUserGuilds().execute();
+            blackhole.consume(user);
+            blackhole.consume(guilds);
+        } finally {
+            sessionManager.removeSession(authCode);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.mrivanplays.jdoa2.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.mrivanplays.jdoa2.CurrentUser;
+import com.mrivanplays.jdoa2.Guild;
+import com.mrivanplays.jdoa2.GuildSet;
+import com.mrivanplays.jdoa2.Permission;
+import com.mrivanplays.jdoa2.internal.ModelDecoder;
+import com.mrivanplays.jdoa2.stub.Payloads;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelDecoderBenchmark {
+
+    @Param({"10", "100", "200"})
+    public int guildCount;
+
+    private JsonFactory jsonFactory;
+    private byte[] userJson;
+    private byte[] guildsJson;
+    private GuildSet decodedGuilds;
+    private long lookupId;
+
+    @Setup
+    public void setup() throws IOException {
+        jsonFactory = new JsonFactory();
+        userJson = Payloads.CURRENT_USER.getBytes("UTF-8");
+        guildsJson = Payloads.guilds(guildCount).getBytes("UTF-8");
+        decodedGuilds = guilds();
+        lookupId = decodedGuilds.get(decodedGuilds.size() / 2).getIdLong();
+    }
+
+    @Benchmark
+    public CurrentUser currentUser() throws IOException {
+        // decoding reads from the response's byte stream, so do the same here
+        try (JsonParser parser = jsonFactory.createParser(new ByteArrayInputStream(userJson))) {
+            return ModelDecoder.readCurrentUser(parser);
+        }
+    }
+
+    @Benchmark
+    public GuildSet guilds() throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(new ByteArrayInputStream(guildsJson))) {
+            return ModelDecoder.readGuilds(parser);
+        }
+    }
+
+    @Benchmark
+    public long guildIdsAndPermissions() {
+        // what a membership check does with a decoded guild list
+        long hash = 0;
+        for (Guild guild : decodedGuilds) {
+            hash += guild.getIdLong() ^ guild.getPermissions();
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public boolean hasPermissionsInGuild() {
+        // a per request authorization check
+        return decodedGuilds.hasPermissions(lookupId, Permission.MANAGE_GUILD);
+    }
+
+    @Benchmark
+    public long[] guildIdsWithPermission() {
+        return decodedGuilds.getIdsWithPermissions(Permission.MANAGE_GUILD);
+    }
+}
@@ -0,0 +1,80 @@
+package com.mrivanplays.jdoa2.benchmarks;
+
+import com.mrivanplays.jdoa2.JDOA2;
+import com.mrivanplays.jdoa2.SessionManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Session lookup and creation under contention, shaped like the OAuth2 callback path. Runs on all cores by default;
+ * pass <code>-t 1</code>, <code>-t 2</code>, ... to see how it scales.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(Threads.MAX)
+@Fork(1)
+public class SessionManagerBenchmark {
+
+    @Param({"10000"})
+    public int sessionCount;
+
+    @Param({"0", "5000"})
+    public long maximumSessions;
+
+    private SessionManager sessionManager;
+    private String[] authCodes;
+    private final AtomicLong nextAuthCode = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        sessionManager = SessionManager.builder()
+                .clientId("332269999912132097")
+                .clientSecret("937it3ow87i4ery69876wqire")
+                .redirectUri("https://example.com/oauth2/callback")
+                .maximumSessions(maximumSessions)
+                .build();
+        authCodes = new String[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            authCodes[i] = "existing-" + i;
+            sessionManager.newSession(authCodes[i]);
+        }
+    }
+
+    @Benchmark
+    public Object getSession() {
+        return sessionManager.getSession(authCodes[ThreadLocalRandom.current().nextInt(authCodes.length)]);
+    }
+
+    @Benchmark
+    public JDOA2 getOrCreateExisting() {
+        return sessionManager.getOrCreateSession(authCodes[ThreadLocalRandom.current().nextInt(authCodes.length)]);
+    }
+
+    @Benchmark
+    public JDOA2 newAndRemoveSession() {
+        // removed again so the session count stays constant across the measurement
+        String authCode = "new-" + nextAuthCode.incrementAndGet();
+        JDOA2 session = sessionManager.newSession(authCode);
+        sessionManager.removeSession(authCode);
+        return session;
+    }
+}
@@ -0,0 +1,50 @@
+package com.mrivanplays.jdoa2.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mrivanplays.jdoa2.DiscordToken;
+import com.mrivanplays.jdoa2.stub.Payloads;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenBenchmark {
+
+    private ObjectMapper jsonMapper;
+    private byte[] tokenJson;
+    private DiscordToken token;
+
+    @Setup
+    public void setup() throws IOException {
+        jsonMapper = new ObjectMapper();
+        tokenJson = Payloads.TOKEN.getBytes("UTF-8");
+        token = jsonMapper.readValue(tokenJson, DiscordToken.class);
+    }
+
+    @Benchmark
+    public DiscordToken deserialize() throws IOException {
+        return jsonMapper.readValue(tokenJson, DiscordToken.class);
+    }
+
+    @Benchmark
+    public boolean hasScope() {
+        // the per request scope check
+        return token.hasScope(com.mrivanplays.jdoa2.Scope.GUILDS);
+    }
+}
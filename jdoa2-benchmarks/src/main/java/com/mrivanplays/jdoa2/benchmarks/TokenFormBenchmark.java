@@ -0,0 +1,49 @@
+package com.mrivanplays.jdoa2.benchmarks;
+
+import com.mrivanplays.jdoa2.internal.TokenForm;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating a token endpoint form body and writing it to a sink, like OkHttp does when sending it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenFormBenchmark {
+
+    private final TokenForm form = new TokenForm("332269999912132097", "937it3ow87i4ery69876wqire",
+            "https://example.com/oauth2/callback?source=benchmark");
+    private final Buffer sink = new Buffer();
+
+    @Benchmark
+    public long authorizationCodeBody() throws IOException {
+        form.authorizationCode("NhhvTDYsFcdgNLnnLijcl7Ku7bEEeee").writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    @Benchmark
+    public long refreshTokenBody() throws IOException {
+        form.refreshToken("D43f5y0ahjqew82jZ4NViEr2YafMKhue").writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+}
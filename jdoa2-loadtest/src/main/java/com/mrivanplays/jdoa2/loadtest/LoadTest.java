@@ -0,0 +1,185 @@
+package com.mrivanplays.jdoa2.loadtest;
+
+import com.mrivanplays.jdoa2.JDOA2;
+import com.mrivanplays.jdoa2.LatencyHistogram;
+import com.mrivanplays.jdoa2.SessionManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open loop load generator, starting logins at a fixed arrival rate regardless of how fast earlier ones complete. A
+ * login is the full OAuth2 callback flow of a new session: token exchange, current user and current user's guilds.
+ * <p>
+ * Latencies are measured from when a login was due rather than when it was started, so a stalled generator shows up
+ * in the percentiles instead of hiding behind a lower arrival rate.
+ */
+public class LoadTest {
+
+    private final SessionManager sessionManager;
+    private final int rate;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final int maxInFlight;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAccumulator peakThreads = new LongAccumulator(Math::max, 0);
+
+    public LoadTest(SessionManager sessionManager, int rate, long warmup, long duration, TimeUnit unit,
+                    int maxInFlight) {
+        this.sessionManager = sessionManager;
+        this.rate = rate;
+        this.warmupNanos = unit.toNanos(warmup);
+        this.durationNanos = unit.toNanos(duration);
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Runs the warmup and the measurement, waits for the logins in flight to complete, and reports the measurement.
+     *
+     * @return report
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Report run() throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "JDOA2 Load Test Sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+        sampler.scheduleAtFixedRate(() -> peakThreads.accumulate(threads.getThreadCount()), 0, 100,
+                TimeUnit.MILLISECONDS);
+        sampler.scheduleAtFixedRate(() -> progress(start, measureStart), 1, 1, TimeUnit.SECONDS);
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long due = start;
+        for (long login = 0; due < end; login++, due = start + login * interval) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (inFlight.get() >= maxInFlight) {
+                // the library fell too far behind, count it rather than queue logins without bound
+                if (due >= measureStart) {
+                    dropped.increment();
+                }
+                continue;
+            }
+            login("load-" + login, due, due >= measureStart);
+        }
+
+        while (inFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+        long elapsed = System.nanoTime() - measureStart;
+        sampler.shutdownNow();
+        return new Report(latencies.snapshot(), completed.sum(), failed.sum(), dropped.sum(), elapsed,
+                threads.getThreadCount(), (int) peakThreads.get());
+    }
+
+    private void login(String authCode, long due, boolean measured) {
+        inFlight.incrementAndGet();
+        CompletionStage<?> flow;
+        try {
+            JDOA2 session = sessionManager.newSession(authCode);
+            flow = session.doTokenExchangeAsync()
+                    .thenCompose(token -> session.getCurrentUserAsync())
+                    .thenCompose(user -> session.getCurrentUserGuildsAsync());
+        } catch (RuntimeException e) {
+            CompletableFuture<?> failedFlow = new CompletableFuture<>();
+            failedFlow.completeExceptionally(e);
+            flow = failedFlow;
+        }
+        flow.whenComplete((guilds, error) -> {
+            if (measured) {
+                if (error != null) {
+                    failed.increment();
+                } else {
+                    latencies.record(System.nanoTime() - due);
+                    completed.increment();
+                }
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    private void progress(long start, long measureStart) {
+        long now = System.nanoTime();
+        System.out.printf("%4ds %-8s completed %d, failed %d, dropped %d, in flight %d, threads %d%n",
+                TimeUnit.NANOSECONDS.toSeconds(now - start), now < measureStart ? "warmup" : "measure",
+                completed.sum(), failed.sum(), dropped.sum(), inFlight.get(),
+                ManagementFactory.getThreadMXBean().getThreadCount());
+    }
+
+    /**
+     * Represents the results of the measured part of a {@link LoadTest}.
+     */
+    public static final class Report {
+
+        private final LatencyHistogram.Snapshot latencies;
+        private final long completed;
+        private final long failed;
+        private final long dropped;
+        private final long elapsedNanos;
+        private final int threads;
+        private final int peakThreads;
+
+        private Report(LatencyHistogram.Snapshot latencies, long completed, long failed, long dropped,
+                       long elapsedNanos, int threads, int peakThreads) {
+            this.latencies = latencies;
+            this.completed = completed;
+            this.failed = failed;
+            this.dropped = dropped;
+            this.elapsedNanos = elapsedNanos;
+            this.threads = threads;
+            this.peakThreads = peakThreads;
+        }
+
+        public LatencyHistogram.Snapshot getLatencies() {
+            return latencies;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        public double getThroughput() {
+            return completed / (elapsedNanos / 1_000_000_000D);
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getPeakThreads() {
+            return peakThreads;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.mrivanplays.jdoa2.loadtest;
+
+import com.mrivanplays.jdoa2.LatencyHistogram;
+import com.mrivanplays.jdoa2.Metrics;
+import com.mrivanplays.jdoa2.SessionManager;
+import com.mrivanplays.jdoa2.stub.DiscordStubServer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * Entry point of the load test jar. Starts a {@link DiscordStubServer}, unless <code>--base-url</code> points
+ * elsewhere, drives a {@link SessionManager} against it with a {@link LoadTest}, and prints the report.
+ */
+public class LoadTestMain {
+
+    private static final String USAGE = "Usage: java -jar loadtest.jar [options]\n"
+            + "  --rate <logins/s>           arrival rate (default 1000)\n"
+            + "  --duration <s>              measurement duration (default 30)\n"
+            + "  --warmup <s>                warmup duration, not measured (default 10)\n"
+            + "  --max-in-flight <logins>    logins in flight before new ones are dropped (default 20000)\n"
+            + "  --virtual-threads           run asynchronous requests on virtual threads (Java 21+)\n"
+            + "  --base-url <url>            target this api instead of starting a stub\n"
+            + "  --latency <ms>              stub latency lower bound (default 50)\n"
+            + "  --max-latency <ms>          stub latency upper bound (default --latency)\n"
+            + "  --rate-limit <requests>     stub requests per route and token per window (default unlimited)\n"
+            + "  --rate-limit-window <s>     stub rate limit window (default 1)\n"
+            + "  --global-rate-limit <r/s>   stub global rate limit (default unlimited)\n"
+            + "  --inject-rate-limits <f>    fraction of stub responses turned into 429s (default 0)\n"
+            + "  --guilds <count>            guilds per user (default 100)\n"
+            + "  --padding <bytes>           stub padding per user and guild (default 0)";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        if (options == null) {
+            System.err.println(USAGE);
+            System.exit(1);
+            return;
+        }
+        int rate = intOption(options, "rate", 1000);
+        int duration = intOption(options, "duration", 30);
+        int warmup = intOption(options, "warmup", 10);
+        int maxInFlight = intOption(options, "max-in-flight", 20000);
+        int latency = intOption(options, "latency", 50);
+
+        DiscordStubServer server = null;
+        String baseUrl = options.get("base-url");
+        if (baseUrl == null) {
+            DiscordStubServer.Builder stub = DiscordStubServer.builder()
+                    .latency(latency, intOption(options, "max-latency", latency), TimeUnit.MILLISECONDS)
+                    .guildCount(intOption(options, "guilds", 100))
+                    .padding(intOption(options, "padding", 0));
+            if (options.containsKey("rate-limit")) {
+                stub.rateLimit(intOption(options, "rate-limit", 0), intOption(options, "rate-limit-window", 1),
+                        TimeUnit.SECONDS);
+            }
+            if (options.containsKey("global-rate-limit")) {
+                stub.globalRateLimit(intOption(options, "global-rate-limit", 0));
+            }
+            if (options.containsKey("inject-rate-limits")) {
+                stub.injectRateLimits(Double.parseDouble(options.get("inject-rate-limits")), 1, TimeUnit.SECONDS);
+            }
+            server = stub.start();
+            baseUrl = server.getBaseUrl();
+        }
+
+        // the defaults of 64 requests and 5 per host would be the bottleneck, rather than the library
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxInFlight);
+        dispatcher.setMaxRequestsPerHost(maxInFlight);
+        Metrics metrics = new Metrics();
+        SessionManager sessionManager = SessionManager.builder()
+                .clientId("332269999912132097")
+                .clientSecret("937it3ow87i4ery69876wqire")
+                .redirectUri("https://example.com/oauth2/callback")
+                .httpClient(new OkHttpClient.Builder()
+                        .dispatcher(dispatcher)
+                        .connectionPool(new ConnectionPool(1024, 5, TimeUnit.MINUTES))
+                        .build())
+                .virtualThreads(options.containsKey("virtual-threads"))
+                .baseUrl(baseUrl)
+                .metrics(metrics)
+                .build();
+
+        try {
+            sessionManager.warmUp().toCompletableFuture().join();
+            System.out.printf("Driving %d logins/s against %s for %ds after a %ds warmup%n", rate, baseUrl, duration,
+                    warmup);
+            LoadTest.Report report = new LoadTest(sessionManager, rate, warmup, duration, TimeUnit.SECONDS,
+                    maxInFlight).run();
+
+            int sessions = sessionManager.getSessions().size();
+            long heapWithSessions = usedHeapAfterGc();
+            for (String authCode : new ArrayList<>(sessionManager.getSessions().keySet())) {
+                sessionManager.removeSession(authCode);
+            }
+            long heapWithoutSessions = usedHeapAfterGc();
+
+            LatencyHistogram.Snapshot latencies = report.getLatencies();
+            Metrics.Snapshot snapshot = metrics.snapshot();
+            System.out.println();
+            System.out.printf("throughput   %.1f logins/s (%d completed, %d failed, %d dropped)%n",
+                    report.getThroughput(), report.getCompleted(), report.getFailed(), report.getDropped());
+            System.out.printf("latency      p50 %s, p99 %s, p999 %s, max %s%n",
+                    millis(latencies.getPercentileNanos(0.5)), millis(latencies.getPercentileNanos(0.99)),
+                    millis(latencies.getPercentileNanos(0.999)), millis(latencies.getMaxNanos()));
+            System.out.printf("threads      %d live, %d peak%n", report.getThreads(), report.getPeakThreads());
+            System.out.printf("heap         %s per session (%d sessions)%n",
+                    sessions == 0 ? "n/a" : bytes((heapWithSessions - heapWithoutSessions) / sessions), sessions);
+            System.out.printf("rate limits  %d 429s, %d retries, %s waited%n", snapshot.getRateLimited(),
+                    snapshot.getRetries(), millis(snapshot.getRateLimitWaitNanos()));
+        } finally {
+            sessionManager.close();
+            if (server != null) {
+                server.close();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                return null;
+            }
+            String name = args[i].substring(2);
+            if (name.equals("virtual-threads")) {
+                options.put(name, "true");
+            } else if (name.equals("help") || i + 1 == args.length) {
+                return null;
+            } else {
+                options.put(name, args[++i]);
+            }
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        // a single gc request may be ignored or only partially collect, take the lowest of a few
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f ms", nanos / 1_000_000D);
+    }
+
+    private static String bytes(long bytes) {
+        return bytes < 1024 ? bytes + " B" : String.format("%.1f KiB", bytes / 1024D);
+    }
+}
@@ -0,0 +1,401 @@
+package com.mrivanplays.jdoa2.stub;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for the discord api endpoints JDOA2 uses: <code>/oauth2/token</code>, <code>/users/@me</code>,
+ * <code>/users/@me/guilds</code> and <code>/gateway</code>. Point JDOA2 at {@link #getBaseUrl()} to load and latency
+ * test it without hitting discord.
+ * <p>
+ * Like discord, it limits every route per access token and answers with the same rate limit headers and 429 bodies,
+ * optionally on top of a global limit, added latency and randomly injected 429s. Every token exchange hands out a
+ * new access token, so sessions are limited separately from each other.
+ */
+public class DiscordStubServer implements AutoCloseable {
+
+    private static final byte[] UNAUTHORIZED = "{\"message\":\"401: Unauthorized\",\"code\":0}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INVALID_GRANT = "{\"error\":\"invalid_grant\",\"error_description\":\"Invalid grant\"}"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GATEWAY = "{\"url\":\"wss://gateway.discord.gg\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Builder config;
+    private final byte[] user;
+    private final byte[] guilds;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket global;
+    private final AtomicLong nextToken = new AtomicLong();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+
+    private DiscordStubServer(Builder config) throws IOException {
+        this.config = config;
+        this.user = Payloads.currentUser(config.padding).getBytes(StandardCharsets.UTF_8);
+        this.guilds = Payloads.guilds(config.guildCount, config.padding).getBytes(StandardCharsets.UTF_8);
+        this.global = config.globalLimit > 0 ? new Bucket() : null;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", config.port), 1024);
+        executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), daemon());
+        scheduler = Executors.newScheduledThreadPool(2, daemon());
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Creates a new builder, configuring a stub server.
+     *
+     * @return builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the base url to pass to <code>JDOA2Builder#baseUrl</code> or <code>SessionManagerBuilder#baseUrl</code>.
+     *
+     * @return base url
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    /**
+     * Returns how many requests this server received.
+     *
+     * @return requests
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns how many requests this server answered with 429.
+     *
+     * @return rate limited requests
+     */
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        byte[] requestBody = drain(exchange.getRequestBody());
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath().substring("/api".length());
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        long now = System.nanoTime();
+
+        if (path.equals("/gateway")) {
+            respond(exchange, 200, GATEWAY);
+            return;
+        }
+        boolean token = path.equals("/oauth2/token") && method.equals("POST");
+        boolean currentUser = path.equals("/users/@me") && method.equals("GET");
+        boolean currentUserGuilds = path.equals("/users/@me/guilds") && method.equals("GET");
+        if (!token && !currentUser && !currentUserGuilds) {
+            respond(exchange, 404, "{\"message\":\"404: Not Found\",\"code\":0}".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if (!token && (authorization == null || !authorization.startsWith("Bearer "))) {
+            respond(exchange, 401, UNAUTHORIZED);
+            return;
+        }
+
+        if (global != null) {
+            long retryAfter = global.acquire(now, config.globalLimit, TimeUnit.SECONDS.toNanos(1));
+            if (retryAfter > 0) {
+                Headers headers = exchange.getResponseHeaders();
+                headers.set("X-RateLimit-Global", "true");
+                headers.set("X-RateLimit-Scope", "global");
+                headers.set("Retry-After", seconds(retryAfter));
+                rateLimited(exchange, retryAfter, true);
+                return;
+            }
+        }
+        if (config.bucketLimit > 0) {
+            String route = method + " " + path;
+            Bucket bucket = buckets.computeIfAbsent(route + "|" + (token ? "" : authorization), key -> new Bucket());
+            long retryAfter = bucket.acquire(now, config.bucketLimit, config.bucketResetNanos);
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("X-RateLimit-Bucket", Integer.toHexString(route.hashCode()));
+            headers.set("X-RateLimit-Limit", Integer.toString(config.bucketLimit));
+            headers.set("X-RateLimit-Remaining", Integer.toString(bucket.remaining(config.bucketLimit)));
+            headers.set("X-RateLimit-Reset-After", seconds(bucket.resetAfter(now)));
+            if (retryAfter > 0) {
+                headers.set("X-RateLimit-Scope", "user");
+                headers.set("Retry-After", seconds(retryAfter));
+                rateLimited(exchange, retryAfter, false);
+                return;
+            }
+        }
+        if (config.injectedRateLimits > 0 && ThreadLocalRandom.current().nextDouble() < config.injectedRateLimits) {
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("X-RateLimit-Scope", "shared");
+            headers.set("Retry-After", seconds(config.injectedRetryAfterNanos));
+            rateLimited(exchange, config.injectedRetryAfterNanos, false);
+            return;
+        }
+
+        if (token) {
+            String form = new String(requestBody, StandardCharsets.UTF_8);
+            if (!form.contains("grant_type=authorization_code") && !form.contains("grant_type=refresh_token")) {
+                respond(exchange, 400, INVALID_GRANT);
+                return;
+            }
+            String accessToken = String.format(Locale.ROOT, "stub%027d", nextToken.incrementAndGet());
+            respond(exchange, 200, Payloads.token(accessToken).getBytes(StandardCharsets.UTF_8));
+        } else {
+            respond(exchange, 200, currentUser ? user : guilds);
+        }
+    }
+
+    private void rateLimited(HttpExchange exchange, long retryAfterNanos, boolean global) throws IOException {
+        rateLimited.increment();
+        String body = "{\"message\":\"You are being rate limited.\",\"retry_after\":" + seconds(retryAfterNanos)
+                + ",\"global\":" + global + "}";
+        respond(exchange, 429, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        long latency = config.minLatencyNanos;
+        if (config.maxLatencyNanos > config.minLatencyNanos) {
+            latency = ThreadLocalRandom.current().nextLong(config.minLatencyNanos, config.maxLatencyNanos + 1);
+        }
+        if (latency <= 0) {
+            send(exchange, status, body);
+            return;
+        }
+        // delayed on the scheduler rather than sleeping, so slow responses don't limit the concurrency
+        scheduler.schedule(() -> {
+            try {
+                send(exchange, status, body);
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }, latency, TimeUnit.NANOSECONDS);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] drain(InputStream in) throws IOException {
+        try (InputStream body = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000_000D);
+    }
+
+    private static ThreadFactory daemon() {
+        return runnable -> {
+            Thread thread = new Thread(runnable, "JDOA2 Stub Server");
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * A fixed window rate limit, like discord's.
+     */
+    private static class Bucket {
+
+        private long windowEnd;
+        private int used;
+
+        synchronized long acquire(long now, int limit, long window) {
+            if (now - windowEnd >= 0) {
+                windowEnd = now + window;
+                used = 0;
+            }
+            if (used >= limit) {
+                return windowEnd - now;
+            }
+            used++;
+            return 0;
+        }
+
+        synchronized int remaining(int limit) {
+            return Math.max(0, limit - used);
+        }
+
+        synchronized long resetAfter(long now) {
+            return Math.max(0, windowEnd - now);
+        }
+    }
+
+    /**
+     * Represents a {@link DiscordStubServer} builder. Nothing is limited or delayed by default.
+     */
+    public static class Builder {
+
+        private int port;
+        private long minLatencyNanos, maxLatencyNanos;
+        private int bucketLimit;
+        private long bucketResetNanos;
+        private int globalLimit;
+        private double injectedRateLimits;
+        private long injectedRetryAfterNanos;
+        private int guildCount = 100;
+        private int padding;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the port to listen on. Defaults to a free port.
+         *
+         * @param port port
+         * @return this instance for chaining
+         */
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Delays every response by the specified latency.
+         *
+         * @param latency latency
+         * @param unit    latency unit
+         * @return this instance for chaining
+         */
+        public Builder latency(long latency, TimeUnit unit) {
+            return latency(latency, latency, unit);
+        }
+
+        /**
+         * Delays every response by a latency picked uniformly between the specified bounds.
+         *
+         * @param min  minimum latency
+         * @param max  maximum latency
+         * @param unit latency unit
+         * @return this instance for chaining
+         */
+        public Builder latency(long min, long max, TimeUnit unit) {
+            if (min < 0 || max < min) {
+                throw new IllegalArgumentException("Invalid latency bounds " + min + ", " + max);
+            }
+            this.minLatencyNanos = unit.toNanos(min);
+            this.maxLatencyNanos = unit.toNanos(max);
+            return this;
+        }
+
+        /**
+         * Limits every route, per access token, to the specified amount of requests per window, and answers requests
+         * over the limit with 429.
+         *
+         * @param limit      requests per window
+         * @param resetAfter window duration
+         * @param unit       window duration unit
+         * @return this instance for chaining
+         */
+        public Builder rateLimit(int limit, long resetAfter, TimeUnit unit) {
+            this.bucketLimit = limit;
+            this.bucketResetNanos = unit.toNanos(resetAfter);
+            return this;
+        }
+
+        /**
+         * Limits all requests together to the specified amount per second, and answers requests over the limit with a
+         * global 429. Discord's global limit is 50 requests per second.
+         *
+         * @param requestsPerSecond requests per second
+         * @return this instance for chaining
+         */
+        public Builder globalRateLimit(int requestsPerSecond) {
+            this.globalLimit = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * Answers the specified fraction of the requests, which aren't otherwise limited, with a shared scope 429, like
+         * discord does when a resource is limited by others.
+         *
+         * @param fraction   fraction of the requests, between 0 and 1
+         * @param retryAfter retry after of the injected 429s
+         * @param unit       retry after unit
+         * @return this instance for chaining
+         */
+        public Builder injectRateLimits(double fraction, long retryAfter, TimeUnit unit) {
+            this.injectedRateLimits = fraction;
+            this.injectedRetryAfterNanos = unit.toNanos(retryAfter);
+            return this;
+        }
+
+        /**
+         * Sets how many guilds <code>/users/@me/guilds</code> returns. Defaults to 100.
+         *
+         * @param guildCount guild count
+         * @return this instance for chaining
+         */
+        public Builder guildCount(int guildCount) {
+            this.guildCount = guildCount;
+            return this;
+        }
+
+        /**
+         * Pads the current user and every guild with an unknown field of the specified length, for testing bigger
+         * payloads. Defaults to 0.
+         *
+         * @param padding padding length
+         * @return this instance for chaining
+         */
+        public Builder padding(int padding) {
+            this.padding = padding;
+            return this;
+        }
+
+        /**
+         * Starts a stub server with this builder's parameters.
+         *
+         * @return started server
+         * @throws IOException if the server couldn't bind
+         */
+        public DiscordStubServer start() throws IOException {
+            return new DiscordStubServer(this);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.mrivanplays.jdoa2.stub;
+
+/**
+ * Realistic discord api response bodies.
+ */
+public final class Payloads {
+
+    public static final String TOKEN = token("6qrZcUqja7812RVdnEKjpzOL4CvHBFG");
+
+    public static final String CURRENT_USER = currentUser(0);
+
+    private Payloads() {
+    }
+
+    /**
+     * Returns a token exchange response body with the specified access token.
+     *
+     * @param accessToken access token
+     * @return token json
+     */
+    public static String token(String accessToken) {
+        return "{\"access_token\":\"" + accessToken + "\","
+                + "\"token_type\":\"Bearer\",\"expires_in\":604800,"
+                + "\"refresh_token\":\"D43f5y0ahjqew82jZ4NViEr2YafMKhue\",\"scope\":\"identify guilds email\"}";
+    }
+
+    /**
+     * Returns a current user response body, padded with an unknown field of the specified length.
+     *
+     * @param padding padding length, or <code>0</code> for none
+     * @return current user json
+     */
+    public static String currentUser(int padding) {
+        StringBuilder json = new StringBuilder(512 + padding)
+                .append("{\"id\":\"80351110224678912\",\"username\":\"Nelly\",")
+                .append("\"discriminator\":\"1337\",\"avatar\":\"8342729096ea3675442027381ff50dfe\",\"verified\":true,")
+                .append("\"email\":\"nelly@discord.com\",\"flags\":64,\"banner\":\"06c16474723fe537c283b8efa61a30c8\",")
+                .append("\"accent_color\":16711680,\"premium_type\":1,\"public_flags\":64,\"mfa_enabled\":true,")
+                .append("\"locale\":\"en-US\"");
+        return pad(json, padding).append('}').toString();
+    }
+
+    /**
+     * Returns a guild list response body with the specified amount of guilds.
+     *
+     * @param count guild count
+     * @return guild list json
+     */
+    public static String guilds(int count) {
+        return guilds(count, 0);
+    }
+
+    /**
+     * Returns a guild list response body with the specified amount of guilds, each padded with an unknown field of the
+     * specified length.
+     *
+     * @param count   guild count
+     * @param padding padding length per guild, or <code>0</code> for none
+     * @return guild list json
+     */
+    public static String guilds(int count, int padding) {
+        StringBuilder json = new StringBuilder(count * (256 + padding)).append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            long id = 197038439483310086L + i * 7919L;
+            json.append("{\"id\":\"").append(id).append("\",\"name\":\"Discord Developers ").append(i)
+                    .append("\",\"icon\":").append(i % 3 == 0 ? "null" : "\"f64c482b807da4f539cff778d174971c\"")
+                    .append(",\"owner\":").append(i % 17 == 0)
+                    .append(",\"permissions\":\"").append(i % 5 == 0 ? "2199023255551" : "104324673")
+                    .append("\",\"features\":[\"COMMUNITY\",\"NEWS\",\"ANIMATED_ICON\"]");
+            pad(json, padding).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static StringBuilder pad(StringBuilder json, int padding) {
+        if (padding <= 0) {
+            return json;
+        }
+        json.append(",\"padding\":\"");
+        for (int i = 0; i < padding; i++) {
+            json.append('x');
+        }
+        return json.append('"');
+    }
+}
@@ -42,7 +42,7 @@ public final class ApplicationInfo {
      *     <li>Open your discord application config</li>
      *     <li>Navigate to OAuth2</li>
      *     <li>Add redirect url and save</li>
-     *     <li>Generate OAuth2 link with the supported scopes: identify, email, guilds</li>
+     *     <li>Generate OAuth2 link with the scopes your application needs, e.g. identify, email, guilds</li>
      * </ol>
      * After doing all the steps, try using the URL you created. If everything was done correctly, after allowing the
      * application by discord your browser will auto redirect you to your callback url and will append
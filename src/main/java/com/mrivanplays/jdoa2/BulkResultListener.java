@@ -0,0 +1,27 @@
+package com.mrivanplays.jdoa2;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Represents a listener, notified of the outcome of a bulk operation of a {@link SessionManager}, once per session,
+ * as soon as the operation on that session completes.
+ * <p>
+ * The listener may be called concurrently from multiple threads, including the {@link JDOA2#getHttpClient() http
+ * client's} threads, so it should be thread safe and return quickly. An exception it throws doesn't stop the bulk
+ * operation, but fails the operation's completion stage once done.
+ *
+ * @param <T> result type
+ */
+@FunctionalInterface
+public interface BulkResultListener<T> {
+
+    /**
+     * Called when the operation on a session completed.
+     *
+     * @param authCode the auth code of the session
+     * @param result   the result, or <code>null</code> if the operation failed
+     * @param error    why the operation failed, or <code>null</code> if it succeeded
+     */
+    void onResult(@Nonnull String authCode, @Nullable T result, @Nullable Throwable error);
+}
@@ -0,0 +1,104 @@
+package com.mrivanplays.jdoa2;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a per endpoint circuit breaker, failing requests fast with {@link CircuitBreakerOpenException} while
+ * discord api is degraded, rather than letting them pile up behind slow, doomed calls.
+ * <p>
+ * After the configured amount of consecutive failures (connection failures and 5xx responses) of an endpoint, its
+ * circuit opens: requests to it fail right away for the configured duration. Then a single trial request is let
+ * through; if it succeeds the circuit closes, otherwise it stays open for another duration.
+ * <p>
+ * Pass the same instance to multiple {@link JDOA2Builder JDOA2Builders} to share the circuit state between them.
+ * Sessions of a {@link SessionManager} always share it.
+ */
+public final class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Map<Metrics.Endpoint, Circuit> circuits = new EnumMap<>(Metrics.Endpoint.class);
+
+    /**
+     * Creates a new circuit breaker.
+     *
+     * @param failureThreshold consecutive failures after which a circuit opens
+     * @param openDuration     how long a circuit stays open
+     * @param unit             open duration unit
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, @Nonnull TimeUnit unit) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = unit.toMillis(openDuration);
+        for (Metrics.Endpoint endpoint : Metrics.Endpoint.values()) {
+            circuits.put(endpoint, new Circuit());
+        }
+    }
+
+    /**
+     * Returns whenever the circuit of the specified endpoint is open, and requests to it fail fast.
+     *
+     * @param endpoint endpoint
+     * @return <code>true</code> if open, <code>false</code> otherwise
+     */
+    public boolean isOpen(@Nonnull Metrics.Endpoint endpoint) {
+        Circuit circuit = circuits.get(endpoint);
+        synchronized (circuit) {
+            long now = System.currentTimeMillis();
+            return circuit.openUntil > now || circuit.trialUntil > now;
+        }
+    }
+
+    /**
+     * Asks for permission to send a request to the specified endpoint. Called by the library before every attempt.
+     *
+     * @param endpoint endpoint
+     * @return <code>true</code> if the request may be sent, <code>false</code> if it should fail fast
+     */
+    public boolean tryAcquire(@Nonnull Metrics.Endpoint endpoint) {
+        Circuit circuit = circuits.get(endpoint);
+        synchronized (circuit) {
+            if (circuit.failures < failureThreshold) {
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            if (now < circuit.openUntil || now < circuit.trialUntil) {
+                return false;
+            }
+            // a trial which never reports back, e.g. an interrupted one, is given up on after another open duration
+            circuit.trialUntil = now + openMillis;
+            return true;
+        }
+    }
+
+    /**
+     * Records the outcome of a request to the specified endpoint. Called by the library after every attempt.
+     *
+     * @param endpoint endpoint
+     * @param success  whenever discord api handled the request, regardless of its status code, other than 5xx
+     */
+    public void record(@Nonnull Metrics.Endpoint endpoint, boolean success) {
+        Circuit circuit = circuits.get(endpoint);
+        synchronized (circuit) {
+            circuit.trialUntil = 0;
+            if (success) {
+                circuit.failures = 0;
+                circuit.openUntil = 0;
+            } else if (++circuit.failures >= failureThreshold) {
+                circuit.openUntil = System.currentTimeMillis() + openMillis;
+            }
+        }
+    }
+
+    private static final class Circuit {
+
+        private int failures;
+        private long openUntil;
+        private long trialUntil;
+    }
+}
@@ -0,0 +1,14 @@
+package com.mrivanplays.jdoa2;
+
+import java.io.IOException;
+
+/**
+ * Represents an {@link IOException}, failing a request without contacting discord api, because the {@link
+ * CircuitBreaker} of its endpoint is open. Surfaces as the cause of an {@link AuthenticationException}.
+ */
+public class CircuitBreakerOpenException extends IOException {
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
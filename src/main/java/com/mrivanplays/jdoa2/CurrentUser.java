@@ -8,7 +8,7 @@ import javax.annotation.Nullable;
  */
 public class CurrentUser implements ISnowflake {
 
-    private String id;
+    private long id;
     private String username;
     private String discriminator;
     private String avatar;
@@ -18,7 +18,7 @@ public class CurrentUser implements ISnowflake {
     private String locale;
     private int flags;
 
-    public CurrentUser(String id, String username, String discriminator,
+    public CurrentUser(long id, String username, String discriminator,
                        String avatar, boolean twoFAEnabled, boolean verified,
                        String email, String locale, int flags) {
         this.id = id;
@@ -32,12 +32,30 @@ public class CurrentUser implements ISnowflake {
         this.flags = flags;
     }
 
+    /**
+     * @deprecated use {@link #CurrentUser(long, String, String, String, boolean, boolean, String, String, int)}
+     */
+    @Deprecated
+    public CurrentUser(String id, String username, String discriminator,
+                       String avatar, boolean twoFAEnabled, boolean verified,
+                       String email, String locale, int flags) {
+        this(Long.parseLong(id), username, discriminator, avatar, twoFAEnabled, verified, email, locale, flags);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Nonnull
     @Override
     public String getId() {
+        return Long.toString(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getIdLong() {
         return id;
     }
 
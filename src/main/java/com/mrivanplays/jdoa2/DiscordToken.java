@@ -4,6 +4,8 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Collections;
+import java.util.Set;
 import javax.annotation.Nonnull;
 
 /**
@@ -26,6 +28,9 @@ public class DiscordToken {
     @JsonProperty("token_type")
     private String tokenType;
 
+    @JsonIgnore
+    private final long scopes;
+
     @JsonCreator
     public DiscordToken(@JsonProperty("access_token") String accessToken,
                         @JsonProperty("expires_in") long expiresIn,
@@ -37,6 +42,7 @@ public class DiscordToken {
         this.expiresIn = expiresIn;
         this.refreshToken = refreshToken;
         this.scope = scope;
+        this.scopes = Scope.parse(scope);
     }
 
     /**
@@ -88,13 +94,38 @@ public class DiscordToken {
         return scope;
     }
 
+    /**
+     * Returns whenever this token was granted the specified scope. The scopes are parsed once, when the token is
+     * created, so this is a single bitmask check.
+     *
+     * @param scope scope
+     * @return <code>true</code> if granted, <code>false</code> otherwise
+     */
+    public boolean hasScope(@Nonnull Scope scope) {
+        return (scopes & scope.getRawValue()) != 0;
+    }
+
+    /**
+     * Returns the known scopes this token was granted. Scopes unknown to this version of the library are only
+     * present in {@link #getScope()}.
+     *
+     * @return unmodifiable set of scopes
+     */
+    @Nonnull
+    @JsonIgnore
+    public Set<Scope> getScopes() {
+        return Collections.unmodifiableSet(Scope.getScopes(scopes));
+    }
+
     /**
      * Parses the scopes to a json array, for easily iterating thru them.
      *
      * @return scope array
+     * @deprecated use {@link #hasScope(Scope)} or {@link #getScopes()}, which don't parse the scopes on every call
      */
     @Nonnull
     @JsonIgnore
+    @Deprecated
     public String[] parseScopes() {
         return scope.split(" ");
     }
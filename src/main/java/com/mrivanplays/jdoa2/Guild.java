@@ -9,13 +9,13 @@ import javax.annotation.Nullable;
  */
 public class Guild implements ISnowflake {
 
-    private String id;
+    private long id;
     private String name;
     private String icon;
     private boolean owner;
-    private int permissions;
+    private long permissions;
 
-    public Guild(String id, String name, String icon, boolean owner, int permissions) {
+    public Guild(long id, String name, String icon, boolean owner, long permissions) {
         this.id = id;
         this.name = name;
         this.icon = icon;
@@ -23,12 +23,28 @@ public class Guild implements ISnowflake {
         this.permissions = permissions;
     }
 
+    /**
+     * @deprecated use {@link #Guild(long, String, String, boolean, long)}, permissions are 64-bit
+     */
+    @Deprecated
+    public Guild(String id, String name, String icon, boolean owner, int permissions) {
+        this(Long.parseLong(id), name, icon, owner, permissions);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Nonnull
     @Override
     public String getId() {
+        return Long.toString(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getIdLong() {
         return id;
     }
 
@@ -84,9 +100,24 @@ public class Guild implements ISnowflake {
      * See: <a href="https://discordapp.com/developers/docs/topics/permissions">Permissions (discord api
      * documentation)</a>
      *
-     * @return permission
+     * @return permissions bitmask
      */
-    public int getPermissions() {
+    public long getPermissions() {
         return permissions;
     }
+
+    /**
+     * Returns whenever the {@link CurrentUser} has all the specified permissions in this guild. Owners and
+     * administrators have every permission.
+     *
+     * @param permissions permissions
+     * @return <code>true</code> if all the permissions are granted, <code>false</code> otherwise
+     */
+    public boolean hasPermissions(@Nonnull Permission... permissions) {
+        if (owner || (this.permissions & Permission.ADMINISTRATOR.getRawValue()) != 0) {
+            return true;
+        }
+        long raw = Permission.getRaw(permissions);
+        return (this.permissions & raw) == raw;
+    }
 }
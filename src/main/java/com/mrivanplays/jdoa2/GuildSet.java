@@ -0,0 +1,168 @@
+package com.mrivanplays.jdoa2;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Represents the {@link Guild Guilds} a {@link CurrentUser} has joined in, as an immutable {@link java.util.List},
+ * sorted by guild id, indexed for fast membership and permission queries.
+ * <p>
+ * Guild ids are kept in a sorted primitive array, so membership checks are binary searches, and every guild's
+ * effective permissions are precomputed into a bitmask: owners and administrators are granted every permission, as
+ * discord does. No query boxes ids or allocates, other than the returned results.
+ */
+public final class GuildSet extends AbstractList<Guild> implements RandomAccess {
+
+    private static final GuildSet EMPTY = new GuildSet(new Guild[0]);
+
+    private final Guild[] guilds;
+    private final long[] ids;
+    private final long[] permissions;
+
+    public GuildSet(@Nonnull Collection<? extends Guild> guilds) {
+        this(guilds.toArray(new Guild[0]));
+    }
+
+    private GuildSet(Guild[] guilds) {
+        Arrays.sort(guilds, Comparator.comparingLong(Guild::getIdLong));
+        this.guilds = guilds;
+        this.ids = new long[guilds.length];
+        this.permissions = new long[guilds.length];
+        for (int i = 0; i < guilds.length; i++) {
+            Guild guild = guilds[i];
+            ids[i] = guild.getIdLong();
+            permissions[i] = guild.isOwner() || (guild.getPermissions() & Permission.ADMINISTRATOR.getRawValue()) != 0
+                    ? -1L
+                    : guild.getPermissions();
+        }
+    }
+
+    /**
+     * Returns an empty guild set.
+     *
+     * @return empty guild set
+     */
+    @Nonnull
+    public static GuildSet empty() {
+        return EMPTY;
+    }
+
+    @Override
+    public Guild get(int index) {
+        return guilds[index];
+    }
+
+    @Override
+    public int size() {
+        return guilds.length;
+    }
+
+    /**
+     * Returns whenever the user is in the specified guild. Named apart from {@link #contains(Object)}, which as for any
+     * list compares the specified object to the guilds, so a boxed id is never contained.
+     *
+     * @param guildId guild id
+     * @return <code>true</code> if in the guild, <code>false</code> otherwise
+     */
+    public boolean containsId(long guildId) {
+        return Arrays.binarySearch(ids, guildId) >= 0;
+    }
+
+    /**
+     * Returns the guild with the specified id, if the user is in it.
+     *
+     * @param guildId guild id
+     * @return guild, or <code>null</code> if the user isn't in it
+     */
+    @Nullable
+    public Guild getGuildById(long guildId) {
+        int index = Arrays.binarySearch(ids, guildId);
+        return index >= 0 ? guilds[index] : null;
+    }
+
+    /**
+     * Returns whenever the user is in the specified guild, and has all the specified permissions there.
+     *
+     * @param guildId     guild id
+     * @param permissions permissions
+     * @return <code>true</code> if in the guild with all the permissions, <code>false</code> otherwise
+     */
+    public boolean hasPermissions(long guildId, @Nonnull Permission... permissions) {
+        return hasPermissions(guildId, Permission.getRaw(permissions));
+    }
+
+    /**
+     * Returns whenever the user is in the specified guild, and has all permissions of the specified bitmask there.
+     *
+     * @param guildId     guild id
+     * @param permissions permissions bitmask
+     * @return <code>true</code> if in the guild with all the permissions, <code>false</code> otherwise
+     */
+    public boolean hasPermissions(long guildId, long permissions) {
+        int index = Arrays.binarySearch(ids, guildId);
+        return index >= 0 && (this.permissions[index] & permissions) == permissions;
+    }
+
+    /**
+     * Returns the guilds in which the user has all the specified permissions.
+     *
+     * @param permissions permissions
+     * @return guilds with the permissions
+     */
+    @Nonnull
+    public GuildSet withPermissions(@Nonnull Permission... permissions) {
+        return withPermissions(Permission.getRaw(permissions));
+    }
+
+    /**
+     * Returns the guilds in which the user has all permissions of the specified bitmask.
+     *
+     * @param permissions permissions bitmask
+     * @return guilds with the permissions
+     */
+    @Nonnull
+    public GuildSet withPermissions(long permissions) {
+        int count = 0;
+        Guild[] matching = new Guild[guilds.length];
+        for (int i = 0; i < guilds.length; i++) {
+            if ((this.permissions[i] & permissions) == permissions) {
+                matching[count++] = guilds[i];
+            }
+        }
+        return count == guilds.length ? this : new GuildSet(Arrays.copyOf(matching, count));
+    }
+
+    /**
+     * Returns the ids of the guilds in which the user has all the specified permissions, in ascending order.
+     *
+     * @param permissions permissions
+     * @return ids of the guilds with the permissions
+     */
+    @Nonnull
+    public long[] getIdsWithPermissions(@Nonnull Permission... permissions) {
+        long raw = Permission.getRaw(permissions);
+        int count = 0;
+        long[] matching = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            if ((this.permissions[i] & raw) == raw) {
+                matching[count++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(matching, count);
+    }
+
+    /**
+     * Returns the ids of all guilds, in ascending order.
+     *
+     * @return guild ids
+     */
+    @Nonnull
+    public long[] getIds() {
+        return ids.clone();
+    }
+}
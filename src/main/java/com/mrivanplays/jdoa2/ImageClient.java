@@ -0,0 +1,84 @@
+package com.mrivanplays.jdoa2;
+
+import java.util.concurrent.CompletionStage;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Represents a client of discord's CDN, downloading user avatars and guild icons.
+ * <p>
+ * Images are cached in memory, and optionally on disk, by user or guild id and image hash. As a hash changes whenever
+ * the image does, cached images never go stale. Concurrent requests for the same image share a single download.
+ */
+public interface ImageClient {
+
+    /**
+     * Creates a new {@link ImageClientBuilder}
+     *
+     * @return builder
+     */
+    @Nonnull
+    static ImageClientBuilder builder() {
+        return new ImageClientBuilder();
+    }
+
+    /**
+     * Returns the CDN url of the {@link CurrentUser}'s avatar, or their default avatar if they didn't set one.
+     *
+     * @param user   current user
+     * @param size   image size, a power of 2 between 16 and 4096
+     * @param format image format, or <code>null</code> for gif if the avatar is animated and png otherwise. Default
+     *               avatars are only available as png
+     * @return avatar url
+     */
+    @Nonnull
+    String getAvatarUrl(@Nonnull CurrentUser user, int size, @Nullable ImageFormat format);
+
+    /**
+     * Returns the CDN url of the {@link Guild}'s icon.
+     *
+     * @param guild  guild
+     * @param size   image size, a power of 2 between 16 and 4096
+     * @param format image format, or <code>null</code> for gif if the icon is animated and png otherwise
+     * @return icon url, or <code>null</code> if the guild has no icon
+     */
+    @Nullable
+    String getGuildIconUrl(@Nonnull Guild guild, int size, @Nullable ImageFormat format);
+
+    /**
+     * Downloads the {@link CurrentUser}'s avatar, or their default avatar if they didn't set one.
+     *
+     * @param user   current user
+     * @param size   image size, a power of 2 between 16 and 4096
+     * @param format image format, or <code>null</code> for gif if the avatar is animated and png otherwise. Default
+     *               avatars are only available as png
+     * @return completion stage, completed with the image bytes, a copy the caller may modify
+     */
+    @Nonnull
+    CompletionStage<byte[]> getAvatar(@Nonnull CurrentUser user, int size, @Nullable ImageFormat format);
+
+    /**
+     * Downloads the {@link Guild}'s icon.
+     *
+     * @param guild  guild
+     * @param size   image size, a power of 2 between 16 and 4096
+     * @param format image format, or <code>null</code> for gif if the icon is animated and png otherwise
+     * @return completion stage, completed with the image bytes, a copy the caller may modify, or exceptionally if the
+     * guild has no icon
+     */
+    @Nonnull
+    CompletionStage<byte[]> getGuildIcon(@Nonnull Guild guild, int size, @Nullable ImageFormat format);
+
+    /**
+     * Drops all images cached in memory. Images cached on disk are kept.
+     */
+    void invalidateMemoryCache();
+
+    /**
+     * Returns how many disk cache reads, writes and evictions failed. The disk cache is best effort, failures aren't
+     * reported otherwise: an image which couldn't be read or written is downloaded again the next time it's requested.
+     *
+     * @return disk cache errors, 0 if there's no disk cache
+     */
+    long getDiskCacheErrors();
+}
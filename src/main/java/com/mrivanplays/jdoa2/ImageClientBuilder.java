@@ -0,0 +1,107 @@
+package com.mrivanplays.jdoa2;
+
+import com.mrivanplays.jdoa2.internal.ImageClientImpl;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Represents an {@link ImageClient} builder.
+ */
+public class ImageClientBuilder {
+
+    private OkHttpClient httpClient;
+    private long memoryCacheMaxBytes = 32 * 1024 * 1024;
+    private Path diskCacheDirectory;
+    private long diskCacheMaxBytes;
+    private String cdnUrl = "https://cdn.discordapp.com";
+
+    public OkHttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Sets the http client images are downloaded with. Pass {@link JDOA2#getHttpClient()} or {@link
+     * SessionManager#getHttpClient()} to share connections and threads with your sessions. Image requests bypass the
+     * sessions' response cache and rate limiting, as the CDN isn't subject to the api's rate limits. Defaults to a new
+     * client.
+     *
+     * @param httpClient http client
+     * @return this instance for chaining
+     */
+    public ImageClientBuilder httpClient(@Nonnull OkHttpClient httpClient) {
+        this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
+        return this;
+    }
+
+    public long memoryCacheMaxBytes() {
+        return memoryCacheMaxBytes;
+    }
+
+    /**
+     * Sets the maximum total size of the images cached in memory, in bytes. The least recently used images are evicted
+     * first. 0 disables the memory cache. Defaults to 32 MiB.
+     *
+     * @param memoryCacheMaxBytes memory cache max bytes
+     * @return this instance for chaining
+     */
+    public ImageClientBuilder memoryCacheMaxBytes(long memoryCacheMaxBytes) {
+        this.memoryCacheMaxBytes = memoryCacheMaxBytes;
+        return this;
+    }
+
+    public Path diskCacheDirectory() {
+        return diskCacheDirectory;
+    }
+
+    public long diskCacheMaxBytes() {
+        return diskCacheMaxBytes;
+    }
+
+    /**
+     * Enables caching images on disk, in the specified directory, up to the specified total size. The least recently
+     * used images are evicted first. Images evicted from memory are read back from disk rather than downloaded again,
+     * also after a restart. Disabled by default.
+     *
+     * @param directory directory, created if it doesn't exist
+     * @param maxBytes  disk cache max bytes
+     * @return this instance for chaining
+     */
+    public ImageClientBuilder diskCache(@Nonnull Path directory, long maxBytes) {
+        this.diskCacheDirectory = Objects.requireNonNull(directory, "directory");
+        this.diskCacheMaxBytes = maxBytes;
+        return this;
+    }
+
+    public String cdnUrl() {
+        return cdnUrl;
+    }
+
+    /**
+     * Sets the base url of discord's CDN. Defaults to <code>https://cdn.discordapp.com</code>.
+     *
+     * @param cdnUrl cdn url, without a trailing slash
+     * @return this instance for chaining
+     */
+    public ImageClientBuilder cdnUrl(@Nonnull String cdnUrl) {
+        Objects.requireNonNull(cdnUrl, "cdnUrl");
+        this.cdnUrl = cdnUrl.endsWith("/") ? cdnUrl.substring(0, cdnUrl.length() - 1) : cdnUrl;
+        return this;
+    }
+
+    /**
+     * Builds this builder's parameters into an {@link ImageClient}.
+     *
+     * @return image client
+     * @throws java.io.UncheckedIOException if the disk cache directory couldn't be read or created
+     */
+    public ImageClient build() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient();
+        }
+        return new ImageClientImpl(this);
+    }
+}
@@ -0,0 +1,32 @@
+package com.mrivanplays.jdoa2;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Represents an image format discord's CDN serves avatars and icons in.
+ */
+public enum ImageFormat {
+    PNG("png"),
+    JPEG("jpg"),
+    WEBP("webp"),
+    /**
+     * Only available for animated images, whose hash starts with <code>a_</code>.
+     */
+    GIF("gif");
+
+    private final String extension;
+
+    ImageFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the file extension of this format, as used in CDN urls.
+     *
+     * @return extension
+     */
+    @Nonnull
+    public String getExtension() {
+        return extension;
+    }
+}
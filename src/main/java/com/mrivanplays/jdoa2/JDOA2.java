@@ -3,9 +3,9 @@ package com.mrivanplays.jdoa2;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.natanbc.reliqua.request.PendingRequest;
 
-import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -17,6 +17,13 @@ import okhttp3.OkHttpClient;
  * <p>
  * JDOA2 stands for Java Discord OAuth2, representing a discord api wrapper of OAuth2 applications for interacting with
  * user data.
+ * <p>
+ * Requests wait for discord's rate limits rather than failing. The asynchronous methods, and {@link PendingRequest
+ * PendingRequests} submitted with <code>async</code> or <code>submit</code>, wait without holding any thread: they're
+ * enqueued once their rate limit permits them. The blocking methods, such as {@link #doTokenExchange()} and
+ * <code>PendingRequest#execute()</code>, wait on the calling thread. A pending request which is retried, after a 429
+ * or by its {@link RetryPolicy}, waits for the retry on an http client thread, while the asynchronous methods schedule
+ * their retries too, so prefer those under load.
  */
 public interface JDOA2 {
 
@@ -44,6 +51,9 @@ public interface JDOA2 {
      * Starts a OAuth2 token exchange process. You may want to call this right after you receive a instance of this
      * class in order for the application to interact with discord api to provide you information.
      * <p>
+     * Exchanges and refreshes of an instance are single flight: calls made while one is in progress, or up to 5
+     * seconds after it succeeded, don't contact discord api and get its token instead.
+     * <p>
      * <b>WARNING: This is a thread blocking method, it may block the thread if the application is rate limited by
      * discord api. CONSIDER RUNNING ASYNCHRONOUSLY!!!!</b>
      *
@@ -56,10 +66,26 @@ public interface JDOA2 {
     @Nonnull
     DiscordToken doTokenExchange();
 
+    /**
+     * Starts a OAuth2 token exchange process, without blocking the calling thread. This is the asynchronous variant of
+     * {@link #doTokenExchange()}.
+     * <p>
+     * Dependent stages may be executed on the {@link #getHttpClient() http client's} threads, so they shouldn't block.
+     *
+     * @return completion stage, completed with the token object, or exceptionally with {@link RateLimitedException} or
+     * {@link AuthenticationException}
+     * @see DiscordToken
+     */
+    @Nonnull
+    CompletionStage<DiscordToken> doTokenExchangeAsync();
+
     /**
      * Refreshes an existing OAuth2 token, or if none found, calls {@link #doTokenExchange()}. You may want to call this
      * hand in hand with {@link #isCurrentTokenValid()} in order for the wrapper to have a working access token.
      * <p>
+     * Like {@link #doTokenExchange()}, this is single flight, so concurrent calls don't use the same refresh token
+     * twice.
+     * <p>
      * <b>WARNING: This is a thread blocking method, it may block the thread if the application is rate limited by
      * discord api. CONSIDER RUNNING ASYNCHRONOUSLY!!!!</b>
      *
@@ -72,6 +98,19 @@ public interface JDOA2 {
     @Nonnull
     DiscordToken doTokenExchangeUsingRefreshToken();
 
+    /**
+     * Refreshes an existing OAuth2 token, or if none found, calls {@link #doTokenExchangeAsync()}, without blocking the
+     * calling thread. This is the asynchronous variant of {@link #doTokenExchangeUsingRefreshToken()}.
+     * <p>
+     * Dependent stages may be executed on the {@link #getHttpClient() http client's} threads, so they shouldn't block.
+     *
+     * @return completion stage, completed with the token object, or exceptionally with {@link RateLimitedException} or
+     * {@link AuthenticationException}
+     * @see DiscordToken
+     */
+    @Nonnull
+    CompletionStage<DiscordToken> doTokenExchangeUsingRefreshTokenAsync();
+
     /**
      * Returns the token this JDOA2 instance has last cached.
      *
@@ -91,8 +130,9 @@ public interface JDOA2 {
     /**
      * Retrieves {@link CurrentUser} information, returning {@link PendingRequest}.
      * <p>
-     * Caching is recommended in order to not hit discord's rate limits. Due to the nature of the api, we currently
-     * cannot apply caching.
+     * Caching is recommended in order to not hit discord's rate limits. See {@link
+     * JDOA2Builder#responseCacheTtl(long, java.util.concurrent.TimeUnit)}. Concurrent calls share a single request, see
+     * {@link #getCurrentUser(boolean)}.
      *
      * @return pending request, containing current user information
      * @throws MissingScopeException    if scope "identify" isn't present
@@ -105,7 +145,52 @@ public interface JDOA2 {
      * @see CurrentUser
      */
     @CheckReturnValue
-    PendingRequest<CurrentUser> getCurrentUser();
+    default PendingRequest<CurrentUser> getCurrentUser() {
+        return getCurrentUser(true);
+    }
+
+    /**
+     * Retrieves {@link CurrentUser} information, returning {@link PendingRequest}.
+     * <p>
+     * If <code>coalesce</code> is <code>true</code>, and an identical request of this instance is in flight while this
+     * one is executed, this one waits for it and shares its response, rather than contacting discord api again. Pass
+     * <code>false</code> to always contact discord api.
+     *
+     * @param coalesce whenever to share the response of an identical in flight request
+     * @return pending request, containing current user information
+     * @see #getCurrentUser()
+     */
+    @CheckReturnValue
+    PendingRequest<CurrentUser> getCurrentUser(boolean coalesce);
+
+    /**
+     * Retrieves {@link CurrentUser} information, without blocking the calling thread. This is the asynchronous variant
+     * of {@link #getCurrentUser()}.
+     * <p>
+     * Dependent stages may be executed on the {@link #getHttpClient() http client's} threads, so they shouldn't block.
+     *
+     * @return completion stage, completed with the current user information, or exceptionally with any of the
+     * exceptions {@link #getCurrentUser()} throws
+     * @see CurrentUser
+     */
+    @Nonnull
+    default CompletionStage<CurrentUser> getCurrentUserAsync() {
+        return getCurrentUserAsync(true);
+    }
+
+    /**
+     * Retrieves {@link CurrentUser} information, without blocking the calling thread. This is the asynchronous variant
+     * of {@link #getCurrentUser(boolean)}.
+     * <p>
+     * If <code>coalesce</code> is <code>true</code>, the returned stage is completed with the same result as any
+     * identical in flight request of this instance.
+     *
+     * @param coalesce whenever to share the result of an identical in flight request
+     * @return completion stage, completed with the current user information
+     * @see #getCurrentUserAsync()
+     */
+    @Nonnull
+    CompletionStage<CurrentUser> getCurrentUserAsync(boolean coalesce);
 
     /**
      * Returns the icon url of the {@link CurrentUser} specified. Note that every avatar method in {@link CurrentUser}
@@ -136,11 +221,12 @@ public interface JDOA2 {
     }
 
     /**
-     * Retrieves a {@link List} of {@link Guild Guilds}, which the {@link CurrentUser} has joined in, returning {@link
-     * PendingRequest}. Requires "guilds" scope.
+     * Retrieves a {@link GuildSet} of the {@link Guild Guilds}, which the {@link CurrentUser} has joined in, returning
+     * {@link PendingRequest}. Requires "guilds" scope.
      * <p>
-     * Caching is recommended in order to not hit discord's rate limits. Due to the nature of the api, we currently
-     * cannot apply caching.
+     * Caching is recommended in order to not hit discord's rate limits. See {@link
+     * JDOA2Builder#responseCacheTtl(long, java.util.concurrent.TimeUnit)}. Concurrent calls share a single request, see
+     * {@link #getCurrentUserGuilds(boolean)}.
      *
      * @return pending request, containing guilds information
      * @throws MissingScopeException    if "guilds" scope wasn't specified
@@ -153,7 +239,73 @@ public interface JDOA2 {
      * @see Guild
      */
     @CheckReturnValue
-    PendingRequest<List<Guild>> getCurrentUserGuilds();
+    default PendingRequest<GuildSet> getCurrentUserGuilds() {
+        return getCurrentUserGuilds(true);
+    }
+
+    /**
+     * Retrieves a {@link GuildSet} of the {@link Guild Guilds}, which the {@link CurrentUser} has joined in, returning
+     * {@link PendingRequest}. Requires "guilds" scope.
+     * <p>
+     * If <code>coalesce</code> is <code>true</code>, and an identical request of this instance is in flight while this
+     * one is executed, this one waits for it and shares its response, rather than contacting discord api again. Pass
+     * <code>false</code> to always contact discord api.
+     *
+     * @param coalesce whenever to share the response of an identical in flight request
+     * @return pending request, containing guilds information
+     * @see #getCurrentUserGuilds()
+     */
+    @CheckReturnValue
+    PendingRequest<GuildSet> getCurrentUserGuilds(boolean coalesce);
+
+    /**
+     * Retrieves a {@link GuildSet} of the {@link Guild Guilds}, which the {@link CurrentUser} has joined in, without
+     * blocking the calling thread. This is the asynchronous variant of {@link #getCurrentUserGuilds()}.
+     * <p>
+     * Dependent stages may be executed on the {@link #getHttpClient() http client's} threads, so they shouldn't block.
+     *
+     * @return completion stage, completed with the guilds information, or exceptionally with any of the exceptions
+     * {@link #getCurrentUserGuilds()} throws
+     * @see Guild
+     */
+    @Nonnull
+    default CompletionStage<GuildSet> getCurrentUserGuildsAsync() {
+        return getCurrentUserGuildsAsync(true);
+    }
+
+    /**
+     * Retrieves a {@link GuildSet} of the {@link Guild Guilds}, which the {@link CurrentUser} has joined in, without
+     * blocking the calling thread. This is the asynchronous variant of {@link #getCurrentUserGuilds(boolean)}.
+     * <p>
+     * If <code>coalesce</code> is <code>true</code>, the returned stage is completed with the same result as any
+     * identical in flight request of this instance.
+     *
+     * @param coalesce whenever to share the result of an identical in flight request
+     * @return completion stage, completed with the guilds information
+     * @see #getCurrentUserGuildsAsync()
+     */
+    @Nonnull
+    CompletionStage<GuildSet> getCurrentUserGuildsAsync(boolean coalesce);
+
+    /**
+     * Prepares this instance for its first requests, so they don't pay for one-time setup: opens a pooled connection
+     * to discord api (DNS, TCP, TLS and HTTP/2 negotiation), and initializes the json mapper's readers of the models.
+     * Call it on startup, e.g. before accepting traffic.
+     * <p>
+     * The instance is usable regardless of whenever the warm up succeeds.
+     *
+     * @return completion stage, completed once warmed up, or exceptionally if discord api couldn't be reached
+     */
+    @Nonnull
+    CompletionStage<Void> warmUp();
+
+    /**
+     * Drops all cached responses of this instance, so the next {@link #getCurrentUser()} and {@link
+     * #getCurrentUserGuilds()} calls contact discord api. Does nothing if response caching isn't enabled.
+     *
+     * @see JDOA2Builder#responseCacheTtl(long, java.util.concurrent.TimeUnit)
+     */
+    void invalidateCache();
 
     /**
      * Returns the {@link OkHttpClient}, used to handle requests.
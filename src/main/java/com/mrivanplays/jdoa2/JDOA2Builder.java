@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mrivanplays.jdoa2.internal.JDOA2Impl;
 
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
@@ -17,6 +18,14 @@ public class JDOA2Builder {
     private ApplicationInfo applicationInfo;
     private ObjectMapper jsonMapper;
     private OkHttpClient okHttpClient;
+    private long responseCacheTtlMillis;
+    private long responseCacheMaxBytes = 1024 * 1024;
+    private long responseCacheMaxTotalBytes = 64 * 1024 * 1024;
+    private Metrics metrics;
+    private boolean virtualThreads;
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+    private CircuitBreaker circuitBreaker;
+    private String baseUrl = "https://discord.com/api";
 
     public JDOA2Builder() {
         this(null);
@@ -88,6 +97,179 @@ public class JDOA2Builder {
         return this;
     }
 
+    /**
+     * Returns the response cache ttl set, in milliseconds.
+     *
+     * @return response cache ttl
+     */
+    public long responseCacheTtlMillis() {
+        return responseCacheTtlMillis;
+    }
+
+    /**
+     * Enables caching the responses of {@link JDOA2#getCurrentUser()} and {@link JDOA2#getCurrentUserGuilds()} for the
+     * specified duration, or less if discord asks for it. Durations less than or equal to 0 disable caching, which is
+     * the default.
+     *
+     * @param duration duration
+     * @param unit     duration unit
+     * @return this instance for chaining
+     * @see JDOA2#invalidateCache()
+     */
+    public JDOA2Builder responseCacheTtl(long duration, @Nonnull TimeUnit unit) {
+        this.responseCacheTtlMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Returns the maximum size of a cached response set, in bytes.
+     *
+     * @return response cache max bytes
+     */
+    public long responseCacheMaxBytes() {
+        return responseCacheMaxBytes;
+    }
+
+    /**
+     * Sets the maximum size of a cached response, in bytes. Bigger responses aren't cached. Defaults to 1 MiB.
+     *
+     * @param responseCacheMaxBytes response cache max bytes
+     * @return this instance for chaining
+     */
+    public JDOA2Builder responseCacheMaxBytes(long responseCacheMaxBytes) {
+        this.responseCacheMaxBytes = responseCacheMaxBytes;
+        return this;
+    }
+
+    /**
+     * Returns the maximum total size of the cached responses, in bytes.
+     *
+     * @return response cache max total bytes
+     */
+    public long responseCacheMaxTotalBytes() {
+        return responseCacheMaxTotalBytes;
+    }
+
+    /**
+     * Sets the maximum total size of the cached responses, in bytes. Once exceeded, expired responses are dropped
+     * first, then arbitrary ones. Defaults to 64 MiB.
+     *
+     * @param responseCacheMaxTotalBytes response cache max total bytes
+     * @return this instance for chaining
+     */
+    public JDOA2Builder responseCacheMaxTotalBytes(long responseCacheMaxTotalBytes) {
+        this.responseCacheMaxTotalBytes = responseCacheMaxTotalBytes;
+        return this;
+    }
+
+    /**
+     * Returns the {@link Metrics} set.
+     *
+     * @return metrics
+     */
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets where the built instance records its metrics. No metrics are recorded by default.
+     *
+     * @param metrics metrics
+     * @return this instance for chaining
+     */
+    public JDOA2Builder metrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Returns whenever virtual threads are used.
+     *
+     * @return virtual threads
+     */
+    public boolean virtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Sets whenever asynchronous requests, including {@link com.github.natanbc.reliqua.request.PendingRequest}
+     * callbacks, are executed on virtual threads instead of the http client's thread pool, and up to 256 requests, or
+     * the http client's limits if higher, run at once instead of the default 5 per host. Blocking calls still wait for
+     * rate limits on the calling thread, which only leaves the platform thread free if the caller itself runs on a
+     * virtual thread. Requires Java 21 or newer, and is ignored on older runtimes. Disabled by default.
+     *
+     * @param virtualThreads whenever to use virtual threads
+     * @return this instance for chaining
+     */
+    public JDOA2Builder virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * Returns the {@link RetryPolicy} set.
+     *
+     * @return retry policy
+     */
+    public RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets how requests are retried after connection failures and 5xx responses. Requests aren't retried by default.
+     *
+     * @param retryPolicy retry policy
+     * @return this instance for chaining
+     */
+    public JDOA2Builder retryPolicy(@Nonnull RetryPolicy retryPolicy) {
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy");
+        return this;
+    }
+
+    /**
+     * Returns the {@link CircuitBreaker} set.
+     *
+     * @return circuit breaker
+     */
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets the circuit breaker, failing requests fast while discord api is degraded. No circuit breaker is used by
+     * default.
+     *
+     * @param circuitBreaker circuit breaker
+     * @return this instance for chaining
+     */
+    public JDOA2Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Returns the discord api base url set.
+     *
+     * @return base url
+     */
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Sets the base url of discord api, which all requests are sent to. Defaults to
+     * <code>https://discord.com/api</code>. Point it to a local stand-in, e.g. a <code>jdoa2-stub</code> server, to
+     * load test without hitting discord.
+     *
+     * @param baseUrl base url, without a trailing slash
+     * @return this instance for chaining
+     */
+    public JDOA2Builder baseUrl(@Nonnull String baseUrl) {
+        Objects.requireNonNull(baseUrl, "baseUrl");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        return this;
+    }
+
     /**
      * Builds this builder's parameters into a {@link JDOA2} instance.
      *
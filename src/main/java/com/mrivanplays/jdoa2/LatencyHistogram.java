@@ -0,0 +1,176 @@
+package com.mrivanplays.jdoa2;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a lock free latency histogram, with microsecond resolution.
+ * <p>
+ * Every power of two is divided into 4 buckets, so recorded values are kept with a relative error of at most 25%,
+ * regardless of their magnitude, in a fixed amount of memory.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = SUB_BUCKETS + 40 * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        buckets[indexOf(TimeUnit.NANOSECONDS.toMicros(nanos))].increment();
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Returns a point in time copy of this histogram.
+     *
+     * @return snapshot
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts, count.sum(), sumNanos.sum(), maxNanos.get());
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(micros, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(SUB_BUCKETS + (exponent - 2) * SUB_BUCKETS + subBucket, BUCKETS - 1);
+    }
+
+    private static long upperBoundMicros(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + 2;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - 2);
+    }
+
+    /**
+     * Represents a point in time copy of a {@link LatencyHistogram}.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sumNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] counts, long count, long sumNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Returns the amount of recorded latencies.
+         *
+         * @return count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of all recorded latencies.
+         *
+         * @return sum in nanoseconds
+         */
+        public long getSumNanos() {
+            return sumNanos;
+        }
+
+        /**
+         * Returns the highest recorded latency.
+         *
+         * @return max in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * Returns the latency under which the specified fraction of the recorded latencies fall, e.g.
+         * <code>0.99</code> for the 99th percentile.
+         *
+         * @param quantile quantile, between 0 and 1
+         * @return percentile in nanoseconds, or <code>0</code> if nothing was recorded
+         */
+        public long getPercentileNanos(double quantile) {
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(TimeUnit.MICROSECONDS.toNanos(upperBoundMicros(i)), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        /**
+         * Returns the amount of buckets of this histogram.
+         *
+         * @return amount of buckets
+         */
+        public int getBuckets() {
+            return counts.length;
+        }
+
+        /**
+         * Returns the exclusive upper bound of a bucket.
+         *
+         * @param bucket bucket index
+         * @return upper bound in nanoseconds
+         */
+        public long getBucketUpperBoundNanos(int bucket) {
+            return TimeUnit.MICROSECONDS.toNanos(upperBoundMicros(bucket));
+        }
+
+        /**
+         * Returns the amount of latencies recorded in a bucket.
+         *
+         * @param bucket bucket index
+         * @return count
+         */
+        public long getBucketCount(int bucket) {
+            return counts[bucket];
+        }
+    }
+}
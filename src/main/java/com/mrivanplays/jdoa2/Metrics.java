@@ -0,0 +1,234 @@
+package com.mrivanplays.jdoa2;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.annotation.Nonnull;
+
+/**
+ * Represents the metrics of what JDOA2 does, for telling apart time spent at discord, at your http client and at the
+ * library's own rate limit handling. Pass the same instance to {@link JDOA2Builder#metrics(Metrics)} or {@link
+ * SessionManagerBuilder#metrics(Metrics)}, and read it with {@link #snapshot()} or {@link #export(MetricsExporter)}.
+ * <p>
+ * Recording is lock free, and the recording methods are called by the library.
+ */
+public final class Metrics {
+
+    /**
+     * Represents a discord api endpoint, used by the library.
+     */
+    public enum Endpoint {
+        /**
+         * <code>/oauth2/token</code>
+         */
+        TOKEN,
+        /**
+         * <code>/users/@me</code>
+         */
+        CURRENT_USER,
+        /**
+         * <code>/users/@me/guilds</code>
+         */
+        GUILDS
+    }
+
+    private final Map<Endpoint, LatencyHistogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rateLimitWaitNanos = new LongAdder();
+    private final LongAdder refreshSuccesses = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private volatile IntSupplier activeSessions = () -> 0;
+
+    public Metrics() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Records a response received from discord api.
+     *
+     * @param endpoint     endpoint
+     * @param statusCode   response status code
+     * @param latencyNanos time between sending the request and receiving the response
+     */
+    public void recordResponse(@Nonnull Endpoint endpoint, int statusCode, long latencyNanos) {
+        latencies.get(endpoint).record(latencyNanos);
+        statusCodes.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+        if (statusCode == 429) {
+            rateLimited.increment();
+        }
+    }
+
+    /**
+     * Records a request being sent again.
+     */
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    /**
+     * Records time a request spent waiting for a rate limit to reset.
+     *
+     * @param nanos wait time in nanoseconds
+     */
+    public void recordRateLimitWait(long nanos) {
+        rateLimitWaitNanos.add(nanos);
+    }
+
+    /**
+     * Records the outcome of a token refresh.
+     *
+     * @param success whenever the refresh succeeded
+     */
+    public void recordRefresh(boolean success) {
+        (success ? refreshSuccesses : refreshFailures).increment();
+    }
+
+    /**
+     * Sets where the active session count is read from.
+     *
+     * @param activeSessions active session count supplier
+     */
+    public void setActiveSessions(@Nonnull IntSupplier activeSessions) {
+        this.activeSessions = activeSessions;
+    }
+
+    /**
+     * Returns a point in time copy of these metrics.
+     *
+     * @return snapshot
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        Map<Endpoint, LatencyHistogram.Snapshot> latencySnapshots = new EnumMap<>(Endpoint.class);
+        for (Map.Entry<Endpoint, LatencyHistogram> entry : latencies.entrySet()) {
+            latencySnapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        Map<Integer, Long> statusCodeCounts = new TreeMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : statusCodes.entrySet()) {
+            statusCodeCounts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return new Snapshot(latencySnapshots, statusCodeCounts, rateLimited.sum(), retries.sum(),
+                rateLimitWaitNanos.sum(), activeSessions.getAsInt(), refreshSuccesses.sum(), refreshFailures.sum());
+    }
+
+    /**
+     * Hands a {@link #snapshot()} to the specified exporter. Call this periodically to push the metrics to your
+     * monitoring system.
+     *
+     * @param exporter exporter
+     */
+    public void export(@Nonnull MetricsExporter exporter) {
+        exporter.export(snapshot());
+    }
+
+    /**
+     * Represents a point in time copy of {@link Metrics}.
+     */
+    public static final class Snapshot {
+
+        private final Map<Endpoint, LatencyHistogram.Snapshot> latencies;
+        private final Map<Integer, Long> statusCodes;
+        private final long rateLimited;
+        private final long retries;
+        private final long rateLimitWaitNanos;
+        private final int activeSessions;
+        private final long refreshSuccesses;
+        private final long refreshFailures;
+
+        private Snapshot(Map<Endpoint, LatencyHistogram.Snapshot> latencies, Map<Integer, Long> statusCodes,
+                         long rateLimited, long retries, long rateLimitWaitNanos, int activeSessions,
+                         long refreshSuccesses, long refreshFailures) {
+            this.latencies = latencies;
+            this.statusCodes = Collections.unmodifiableMap(statusCodes);
+            this.rateLimited = rateLimited;
+            this.retries = retries;
+            this.rateLimitWaitNanos = rateLimitWaitNanos;
+            this.activeSessions = activeSessions;
+            this.refreshSuccesses = refreshSuccesses;
+            this.refreshFailures = refreshFailures;
+        }
+
+        /**
+         * Returns the latencies of the responses of the specified endpoint. Rate limit waits are not included.
+         *
+         * @param endpoint endpoint
+         * @return latency histogram
+         */
+        @Nonnull
+        public LatencyHistogram.Snapshot getLatency(@Nonnull Endpoint endpoint) {
+            return latencies.get(endpoint);
+        }
+
+        /**
+         * Returns how many responses were received per status code.
+         *
+         * @return status code counts
+         */
+        @Nonnull
+        public Map<Integer, Long> getStatusCodes() {
+            return statusCodes;
+        }
+
+        /**
+         * Returns how many 429 responses were received.
+         *
+         * @return rate limited responses
+         */
+        public long getRateLimited() {
+            return rateLimited;
+        }
+
+        /**
+         * Returns how many requests were sent again, after a 429 or a failure.
+         *
+         * @return retries
+         */
+        public long getRetries() {
+            return retries;
+        }
+
+        /**
+         * Returns the total time requests spent waiting for rate limits to reset.
+         *
+         * @return rate limit wait time in nanoseconds
+         */
+        public long getRateLimitWaitNanos() {
+            return rateLimitWaitNanos;
+        }
+
+        /**
+         * Returns the amount of sessions the session manager holds.
+         *
+         * @return active sessions
+         */
+        public int getActiveSessions() {
+            return activeSessions;
+        }
+
+        /**
+         * Returns how many token refreshes succeeded.
+         *
+         * @return successful refreshes
+         */
+        public long getRefreshSuccesses() {
+            return refreshSuccesses;
+        }
+
+        /**
+         * Returns how many token refreshes failed.
+         *
+         * @return failed refreshes
+         */
+        public long getRefreshFailures() {
+            return refreshFailures;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.mrivanplays.jdoa2;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a hook, translating {@link Metrics} to your monitoring system.
+ *
+ * @see Metrics#export(MetricsExporter)
+ */
+@FunctionalInterface
+public interface MetricsExporter {
+
+    /**
+     * Exports the metrics snapshot.
+     *
+     * @param snapshot metrics snapshot
+     */
+    void export(@Nonnull Metrics.Snapshot snapshot);
+}
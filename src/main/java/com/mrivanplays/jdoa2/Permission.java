@@ -0,0 +1,118 @@
+package com.mrivanplays.jdoa2;
+
+import java.util.EnumSet;
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a discord guild permission.
+ * <p>
+ * See: <a href="https://discord.com/developers/docs/topics/permissions">Permissions (discord api documentation)</a>
+ */
+public enum Permission {
+    CREATE_INSTANT_INVITE(0),
+    KICK_MEMBERS(1),
+    BAN_MEMBERS(2),
+    ADMINISTRATOR(3),
+    MANAGE_CHANNELS(4),
+    MANAGE_GUILD(5),
+    ADD_REACTIONS(6),
+    VIEW_AUDIT_LOG(7),
+    PRIORITY_SPEAKER(8),
+    STREAM(9),
+    VIEW_CHANNEL(10),
+    SEND_MESSAGES(11),
+    SEND_TTS_MESSAGES(12),
+    MANAGE_MESSAGES(13),
+    EMBED_LINKS(14),
+    ATTACH_FILES(15),
+    READ_MESSAGE_HISTORY(16),
+    MENTION_EVERYONE(17),
+    USE_EXTERNAL_EMOJIS(18),
+    VIEW_GUILD_INSIGHTS(19),
+    CONNECT(20),
+    SPEAK(21),
+    MUTE_MEMBERS(22),
+    DEAFEN_MEMBERS(23),
+    MOVE_MEMBERS(24),
+    USE_VAD(25),
+    CHANGE_NICKNAME(26),
+    MANAGE_NICKNAMES(27),
+    MANAGE_ROLES(28),
+    MANAGE_WEBHOOKS(29),
+    MANAGE_GUILD_EXPRESSIONS(30),
+    USE_APPLICATION_COMMANDS(31),
+    REQUEST_TO_SPEAK(32),
+    MANAGE_EVENTS(33),
+    MANAGE_THREADS(34),
+    CREATE_PUBLIC_THREADS(35),
+    CREATE_PRIVATE_THREADS(36),
+    USE_EXTERNAL_STICKERS(37),
+    SEND_MESSAGES_IN_THREADS(38),
+    USE_EMBEDDED_ACTIVITIES(39),
+    MODERATE_MEMBERS(40),
+    VIEW_CREATOR_MONETIZATION_ANALYTICS(41),
+    USE_SOUNDBOARD(42),
+    CREATE_GUILD_EXPRESSIONS(43),
+    CREATE_EVENTS(44),
+    USE_EXTERNAL_SOUNDS(45),
+    SEND_VOICE_MESSAGES(46),
+    SEND_POLLS(49),
+    USE_EXTERNAL_APPS(50);
+
+    private final int offset;
+    private final long rawValue;
+
+    Permission(int offset) {
+        this.offset = offset;
+        this.rawValue = 1L << offset;
+    }
+
+    /**
+     * Returns the bit offset of this permission in a permissions bitmask.
+     *
+     * @return offset
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the bitmask of this permission alone.
+     *
+     * @return raw value
+     */
+    public long getRawValue() {
+        return rawValue;
+    }
+
+    /**
+     * Returns the bitmask of the specified permissions combined.
+     *
+     * @param permissions permissions
+     * @return raw value
+     */
+    public static long getRaw(@Nonnull Permission... permissions) {
+        long raw = 0;
+        for (Permission permission : permissions) {
+            raw |= permission.rawValue;
+        }
+        return raw;
+    }
+
+    /**
+     * Returns the known permissions of the specified bitmask.
+     *
+     * @param raw permissions bitmask
+     * @return permissions
+     */
+    @Nonnull
+    public static EnumSet<Permission> getPermissions(long raw) {
+        EnumSet<Permission> permissions = EnumSet.noneOf(Permission.class);
+        for (Permission permission : values()) {
+            if ((raw & permission.rawValue) != 0) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
+    }
+}
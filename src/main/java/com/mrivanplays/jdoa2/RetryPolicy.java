@@ -0,0 +1,144 @@
+package com.mrivanplays.jdoa2;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+
+/**
+ * Represents how requests to discord api are retried after a connection failure or a 5xx response. Rate limited
+ * requests are handled separately, by waiting for the rate limit to reset.
+ * <p>
+ * Token exchanges and refreshes are not idempotent, so they are only retried if discord couldn't have processed them:
+ * after a failure to connect, or a 502, 503 or 504 response.
+ */
+public final class RetryPolicy {
+
+    private static final RetryPolicy NONE = builder().maxAttempts(1).build();
+
+    /**
+     * Returns a policy which never retries. This is the default.
+     *
+     * @return no retry policy
+     */
+    @Nonnull
+    public static RetryPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Creates a new {@link RetryPolicy.Builder}
+     *
+     * @return builder
+     */
+    @Nonnull
+    public static RetryPolicy.Builder builder() {
+        return new RetryPolicy.Builder();
+    }
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long deadlineMillis;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffMillis = builder.initialBackoffMillis;
+        this.maxBackoffMillis = builder.maxBackoffMillis;
+        this.deadlineMillis = builder.deadlineMillis;
+    }
+
+    /**
+     * Returns the maximum amount of attempts per request, including the first one.
+     *
+     * @return max attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns the time after the first attempt, after which no more attempts are started, or 0 if unbounded.
+     *
+     * @return deadline in millis
+     */
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /**
+     * Returns the time to wait before the specified retry: exponentially growing from the initial backoff, capped at
+     * the maximum backoff, with full jitter so retrying clients don't synchronize.
+     *
+     * @param retry retry number, starting at 1
+     * @return backoff in millis
+     */
+    public long getBackoffMillis(int retry) {
+        long backoff = initialBackoffMillis << Math.min(retry - 1, 30);
+        if (backoff <= 0 || backoff > maxBackoffMillis) {
+            backoff = maxBackoffMillis;
+        }
+        return backoff > 0 ? ThreadLocalRandom.current().nextLong(backoff + 1) : 0;
+    }
+
+    /**
+     * Represents a {@link RetryPolicy} builder.
+     */
+    public static final class Builder {
+
+        private int maxAttempts = 3;
+        private long initialBackoffMillis = 100;
+        private long maxBackoffMillis = 2000;
+        private long deadlineMillis = 10_000;
+
+        /**
+         * Sets the maximum amount of attempts per request, including the first one. Defaults to 3.
+         *
+         * @param maxAttempts max attempts
+         * @return this instance for chaining
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Sets the backoff before the first retry, doubled for every next retry, up to the maximum backoff. Defaults
+         * to 100 milliseconds, up to 2 seconds.
+         *
+         * @param initial initial backoff
+         * @param max     maximum backoff
+         * @param unit    backoff unit
+         * @return this instance for chaining
+         */
+        public Builder backoff(long initial, long max, @Nonnull TimeUnit unit) {
+            this.initialBackoffMillis = unit.toMillis(initial);
+            this.maxBackoffMillis = Math.max(unit.toMillis(max), initialBackoffMillis);
+            return this;
+        }
+
+        /**
+         * Sets the time after the first attempt, after which no more attempts are started. Values less than or equal
+         * to 0 mean unbounded. Defaults to 10 seconds.
+         *
+         * @param deadline deadline
+         * @param unit     deadline unit
+         * @return this instance for chaining
+         */
+        public Builder deadline(long deadline, @Nonnull TimeUnit unit) {
+            this.deadlineMillis = Math.max(unit.toMillis(deadline), 0);
+            return this;
+        }
+
+        /**
+         * Builds the specified parameters of the builder into a {@link RetryPolicy}
+         *
+         * @return retry policy
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.mrivanplays.jdoa2;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Represents a discord OAuth2 scope.
+ * <p>
+ * See: <a href="https://discord.com/developers/docs/topics/oauth2#shared-resources-oauth2-scopes">OAuth2 scopes
+ * (discord api documentation)</a>
+ */
+public enum Scope {
+    ACTIVITIES_READ("activities.read"),
+    ACTIVITIES_WRITE("activities.write"),
+    APPLICATIONS_BUILDS_READ("applications.builds.read"),
+    APPLICATIONS_BUILDS_UPLOAD("applications.builds.upload"),
+    APPLICATIONS_COMMANDS("applications.commands"),
+    APPLICATIONS_COMMANDS_UPDATE("applications.commands.update"),
+    APPLICATIONS_COMMANDS_PERMISSIONS_UPDATE("applications.commands.permissions.update"),
+    APPLICATIONS_ENTITLEMENTS("applications.entitlements"),
+    APPLICATIONS_STORE_UPDATE("applications.store.update"),
+    BOT("bot"),
+    CONNECTIONS("connections"),
+    DM_CHANNELS_READ("dm_channels.read"),
+    EMAIL("email"),
+    GDM_JOIN("gdm.join"),
+    GUILDS("guilds"),
+    GUILDS_JOIN("guilds.join"),
+    GUILDS_MEMBERS_READ("guilds.members.read"),
+    IDENTIFY("identify"),
+    MESSAGES_READ("messages.read"),
+    RELATIONSHIPS_READ("relationships.read"),
+    ROLE_CONNECTIONS_WRITE("role_connections.write"),
+    RPC("rpc"),
+    RPC_ACTIVITIES_WRITE("rpc.activities.write"),
+    RPC_NOTIFICATIONS_READ("rpc.notifications.read"),
+    RPC_VOICE_READ("rpc.voice.read"),
+    RPC_VOICE_WRITE("rpc.voice.write"),
+    VOICE("voice"),
+    WEBHOOK_INCOMING("webhook.incoming");
+
+    private static final Map<String, Scope> BY_NAME = new HashMap<>();
+
+    static {
+        for (Scope scope : values()) {
+            BY_NAME.put(scope.name, scope);
+        }
+    }
+
+    private final String name;
+    private final long rawValue;
+
+    Scope(String name) {
+        this.name = name;
+        this.rawValue = 1L << ordinal();
+    }
+
+    /**
+     * Returns the name of this scope, as used by discord.
+     *
+     * @return name
+     */
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the bitmask of this scope alone.
+     *
+     * @return raw value
+     */
+    public long getRawValue() {
+        return rawValue;
+    }
+
+    /**
+     * Returns the scope with the specified name, ignoring case.
+     *
+     * @param name scope name, as used by discord
+     * @return scope, or <code>null</code> if unknown
+     */
+    @Nullable
+    public static Scope fromName(@Nonnull String name) {
+        Scope scope = BY_NAME.get(name);
+        return scope != null ? scope : BY_NAME.get(name.toLowerCase());
+    }
+
+    /**
+     * Parses a space separated list of scopes, as sent by discord, into a bitmask. Unknown scopes are ignored.
+     *
+     * @param scopes space separated scopes
+     * @return scopes bitmask
+     */
+    public static long parse(@Nullable String scopes) {
+        if (scopes == null) {
+            return 0;
+        }
+        long raw = 0;
+        int start = 0;
+        while (start < scopes.length()) {
+            int end = scopes.indexOf(' ', start);
+            if (end == -1) {
+                end = scopes.length();
+            }
+            if (end > start) {
+                Scope scope = fromName(scopes.substring(start, end));
+                if (scope != null) {
+                    raw |= scope.rawValue;
+                }
+            }
+            start = end + 1;
+        }
+        return raw;
+    }
+
+    /**
+     * Returns the scopes of the specified bitmask.
+     *
+     * @param raw scopes bitmask
+     * @return scopes
+     */
+    @Nonnull
+    public static EnumSet<Scope> getScopes(long raw) {
+        EnumSet<Scope> scopes = EnumSet.noneOf(Scope.class);
+        for (Scope scope : values()) {
+            if ((raw & scope.rawValue) != 0) {
+                scopes.add(scope);
+            }
+        }
+        return scopes;
+    }
+
+    /**
+     * Joins the specified scopes into a space separated list, as expected by discord's authorization url.
+     *
+     * @param scopes scopes
+     * @return space separated scopes
+     */
+    @Nonnull
+    public static String join(@Nonnull Scope... scopes) {
+        StringBuilder joined = new StringBuilder();
+        for (Scope scope : scopes) {
+            if (joined.length() > 0) {
+                joined.append(' ');
+            }
+            joined.append(scope.name);
+        }
+        return joined.toString();
+    }
+}
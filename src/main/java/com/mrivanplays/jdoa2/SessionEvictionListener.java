@@ -0,0 +1,39 @@
+package com.mrivanplays.jdoa2;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a listener, notified whenever a {@link SessionManager} evicts a {@link JDOA2} session on its own.
+ * Sessions removed by {@link SessionManager#removeSession(String)} are not reported.
+ * <p>
+ * Size evictions are reported on the thread which added the session, and expired sessions on the thread which looked
+ * them up, or on the session manager's expiry thread, so the listener should return quickly.
+ */
+@FunctionalInterface
+public interface SessionEvictionListener {
+
+    /**
+     * Called when a session was evicted.
+     *
+     * @param authCode the auth code the session was keyed by
+     * @param session  the evicted session
+     * @param cause    why the session was evicted
+     */
+    void onEviction(@Nonnull String authCode, @Nonnull JDOA2 session, @Nonnull Cause cause);
+
+    /**
+     * Represents the reason a session was evicted.
+     */
+    enum Cause {
+        /**
+         * The session manager went over its {@link SessionManagerBuilder#maximumSessions(long) maximum sessions}, and
+         * this was the least recently used session.
+         */
+        SIZE,
+        /**
+         * The session outlived its {@link SessionManagerBuilder#expireAfterWrite(long, java.util.concurrent.TimeUnit)}
+         * or {@link SessionManagerBuilder#expireAfterAccess(long, java.util.concurrent.TimeUnit)} duration.
+         */
+        EXPIRED
+    }
+}
@@ -2,11 +2,14 @@ package com.mrivanplays.jdoa2;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import javax.annotation.Nonnull;
 
 import okhttp3.OkHttpClient;
@@ -14,7 +17,7 @@ import okhttp3.OkHttpClient;
 /**
  * Represents a session manager, for managing {@link JDOA2} instances, used by your application.
  */
-public interface SessionManager {
+public interface SessionManager extends AutoCloseable {
 
     /**
      * Creates a new {@link SessionManagerBuilder}
@@ -29,6 +32,10 @@ public interface SessionManager {
     /**
      * Returns unmodifiable {@link Map}, holding all managed {@link JDOA2} instances, key being the
      * <code>authCode</code> specified when creating the session.
+     * <p>
+     * The map is a live view, safe to iterate while other threads create sessions. Iteration is weakly consistent: it
+     * never throws {@link java.util.ConcurrentModificationException}, but may or may not reflect sessions created after
+     * it started.
      *
      * @return map with managed {@link JDOA2} instances
      */
@@ -57,16 +64,87 @@ public interface SessionManager {
     Optional<JDOA2> getSession(@Nonnull String authCode);
 
     /**
-     * Returns a {@link JDOA2} session, fresh created if didn't exist, retrieved otherwise.
+     * Removes the {@link JDOA2} session, identified by the <code>authCode</code> specified, if any. The
+     * {@link SessionEvictionListener} isn't notified about sessions removed this way.
+     *
+     * @param authCode auth code of the session you want to remove
+     * @return the removed session if existed, optional empty otherwise
+     */
+    Optional<JDOA2> removeSession(@Nonnull String authCode);
+
+    /**
+     * Returns a {@link JDOA2} session, fresh created if didn't exist, retrieved otherwise. Session managers created by
+     * {@link #builder()} do this atomically: concurrent calls with the same <code>authCode</code> all receive the same
+     * session.
      *
      * @param authCode auth code of the session
      * @return new session or retrieved session
      */
     @Nonnull
     default JDOA2 getOrCreateSession(@Nonnull String authCode) {
-        return getSession(authCode).orElse(newSession(authCode));
+        return getSession(authCode).orElseGet(() -> newSession(authCode));
+    }
+
+    /**
+     * Runs an asynchronous operation on the sessions of the specified auth codes, with at most {@link
+     * SessionManagerBuilder#bulkParallelism(int)} operations in flight at once. The listener is notified of each
+     * session's outcome as soon as it's known. A failed operation, or an auth code without a session, is reported as
+     * an error to the listener and doesn't stop the operation on the other sessions.
+     *
+     * @param authCodes auth codes of the sessions
+     * @param operation operation, e.g. <code>JDOA2::getCurrentUserAsync</code>
+     * @param listener  result listener
+     * @param <T>       result type
+     * @return completion stage, completed once the operation completed on all sessions, exceptionally with the first
+     * exception the listener threw, if any
+     */
+    @Nonnull
+    <T> CompletionStage<Void> bulk(@Nonnull Collection<String> authCodes,
+                                   @Nonnull Function<JDOA2, ? extends CompletionStage<T>> operation,
+                                   @Nonnull BulkResultListener<? super T> listener);
+
+    /**
+     * Retrieves the {@link CurrentUser} of the sessions of the specified auth codes, in bulk.
+     *
+     * @param authCodes auth codes of the sessions
+     * @param listener  result listener
+     * @return completion stage, completed once all users were retrieved or failed
+     * @see #bulk(Collection, Function, BulkResultListener)
+     */
+    @Nonnull
+    default CompletionStage<Void> getCurrentUsers(@Nonnull Collection<String> authCodes,
+                                                  @Nonnull BulkResultListener<? super CurrentUser> listener) {
+        return bulk(authCodes, JDOA2::getCurrentUserAsync, listener);
     }
 
+    /**
+     * Retrieves the {@link GuildSet GuildSets} of the sessions of the specified auth codes, in bulk.
+     *
+     * @param authCodes auth codes of the sessions
+     * @param listener  result listener
+     * @return completion stage, completed once all guilds were retrieved or failed
+     * @see #bulk(Collection, Function, BulkResultListener)
+     */
+    @Nonnull
+    default CompletionStage<Void> getCurrentUsersGuilds(@Nonnull Collection<String> authCodes,
+                                                        @Nonnull BulkResultListener<? super GuildSet> listener) {
+        return bulk(authCodes, JDOA2::getCurrentUserGuildsAsync, listener);
+    }
+
+    /**
+     * Refreshes the tokens of all sessions whose token expires within the specified duration, including already
+     * expired ones, in bulk.
+     *
+     * @param duration duration
+     * @param unit     duration unit
+     * @param listener result listener
+     * @return completion stage, completed once all tokens were refreshed or failed
+     * @see #bulk(Collection, Function, BulkResultListener)
+     */
+    @Nonnull
+    CompletionStage<Void> refreshTokensExpiringWithin(long duration, @Nonnull TimeUnit unit,
+                                                      @Nonnull BulkResultListener<? super DiscordToken> listener);
+
     /**
      * Returns the {@link ObjectMapper}, used to read json from discord api responses.
      *
@@ -82,4 +160,26 @@ public interface SessionManager {
      */
     @Nonnull
     ObjectMapper getJsonMapper();
+
+    /**
+     * Prepares the sessions of this session manager for their first requests, so the first users don't pay for
+     * one-time setup: opens a pooled connection to discord api (DNS, TCP, TLS and HTTP/2 negotiation), shared by all
+     * sessions, and initializes the json mapper's readers of the models. Call it on startup, e.g. before accepting
+     * traffic.
+     * <p>
+     * The session manager is usable regardless of whenever the warm up succeeds.
+     *
+     * @return completion stage, completed once warmed up, or exceptionally if discord api couldn't be reached
+     * @see JDOA2#warmUp()
+     */
+    @Nonnull
+    CompletionStage<Void> warmUp();
+
+    /**
+     * Stops the background work of this session manager, and closes its {@link TokenStore}, if any. Sessions can still
+     * be used afterwards, but their tokens are no longer refreshed in the background nor persisted.
+     */
+    @Override
+    default void close() {
+    }
 }
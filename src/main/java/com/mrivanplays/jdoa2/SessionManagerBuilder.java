@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mrivanplays.jdoa2.internal.SessionManagerImpl;
 
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.OkHttpClient;
 
@@ -12,6 +13,21 @@ public class SessionManagerBuilder {
     private String clientId, clientSecret, redirectUri;
     private OkHttpClient httpClient;
     private ObjectMapper jsonMapper;
+    private long maximumSessions;
+    private long expireAfterWriteNanos, expireAfterAccessNanos;
+    private SessionEvictionListener evictionListener;
+    private long refreshTokensAheadMillis;
+    private int refreshParallelism = 4;
+    private int bulkParallelism = 16;
+    private long responseCacheTtlMillis;
+    private long responseCacheMaxBytes = 1024 * 1024;
+    private long responseCacheMaxTotalBytes = 64 * 1024 * 1024;
+    private TokenStore tokenStore;
+    private Metrics metrics;
+    private boolean virtualThreads;
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+    private CircuitBreaker circuitBreaker;
+    private String baseUrl = "https://discord.com/api";
 
     public String clientId() {
         return clientId;
@@ -58,6 +74,270 @@ public class SessionManagerBuilder {
         return this;
     }
 
+    public long maximumSessions() {
+        return maximumSessions;
+    }
+
+    /**
+     * Sets the maximum amount of sessions kept. When exceeded, the least recently used sessions are evicted. Values
+     * less than or equal to 0 mean unbounded, which is the default.
+     *
+     * @param maximumSessions maximum sessions
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder maximumSessions(long maximumSessions) {
+        this.maximumSessions = maximumSessions;
+        return this;
+    }
+
+    public long expireAfterWriteNanos() {
+        return expireAfterWriteNanos;
+    }
+
+    /**
+     * Sets after how long since their creation sessions are evicted. Durations less than or equal to 0 mean never,
+     * which is the default.
+     *
+     * @param duration duration
+     * @param unit     duration unit
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder expireAfterWrite(long duration, TimeUnit unit) {
+        this.expireAfterWriteNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    public long expireAfterAccessNanos() {
+        return expireAfterAccessNanos;
+    }
+
+    /**
+     * Sets after how long since they were last retrieved from the session manager sessions are evicted. Durations less
+     * than or equal to 0 mean never, which is the default.
+     *
+     * @param duration duration
+     * @param unit     duration unit
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder expireAfterAccess(long duration, TimeUnit unit) {
+        this.expireAfterAccessNanos = unit.toNanos(duration);
+        return this;
+    }
+
+    public SessionEvictionListener evictionListener() {
+        return evictionListener;
+    }
+
+    public SessionManagerBuilder evictionListener(SessionEvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+        return this;
+    }
+
+    public long refreshTokensAheadMillis() {
+        return refreshTokensAheadMillis;
+    }
+
+    /**
+     * Enables refreshing the tokens of all sessions in the background, the specified duration before they expire. A
+     * random jitter of up to a tenth of the duration is added, so tokens received together aren't refreshed together.
+     * Durations less than or equal to 0 disable background refreshing, which is the default.
+     *
+     * @param duration duration
+     * @param unit     duration unit
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder refreshTokensAhead(long duration, TimeUnit unit) {
+        this.refreshTokensAheadMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public int refreshParallelism() {
+        return refreshParallelism;
+    }
+
+    /**
+     * Sets the maximum amount of background token refreshes running at once. Defaults to 4.
+     *
+     * @param refreshParallelism refresh parallelism
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder refreshParallelism(int refreshParallelism) {
+        if (refreshParallelism < 1) {
+            throw new IllegalArgumentException("refreshParallelism must be at least 1");
+        }
+        this.refreshParallelism = refreshParallelism;
+        return this;
+    }
+
+    public int bulkParallelism() {
+        return bulkParallelism;
+    }
+
+    /**
+     * Sets the maximum amount of operations in flight at once, per bulk operation. Defaults to 16.
+     *
+     * @param bulkParallelism bulk parallelism
+     * @return this instance for chaining
+     * @see SessionManager#bulk(java.util.Collection, java.util.function.Function, BulkResultListener)
+     */
+    public SessionManagerBuilder bulkParallelism(int bulkParallelism) {
+        if (bulkParallelism < 1) {
+            throw new IllegalArgumentException("bulkParallelism must be at least 1");
+        }
+        this.bulkParallelism = bulkParallelism;
+        return this;
+    }
+
+    public long responseCacheTtlMillis() {
+        return responseCacheTtlMillis;
+    }
+
+    /**
+     * Enables response caching for all sessions.
+     *
+     * @param duration duration
+     * @param unit     duration unit
+     * @return this instance for chaining
+     * @see JDOA2Builder#responseCacheTtl(long, TimeUnit)
+     */
+    public SessionManagerBuilder responseCacheTtl(long duration, TimeUnit unit) {
+        this.responseCacheTtlMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    public long responseCacheMaxBytes() {
+        return responseCacheMaxBytes;
+    }
+
+    /**
+     * Sets the maximum size of a cached response, for all sessions.
+     *
+     * @param responseCacheMaxBytes response cache max bytes
+     * @return this instance for chaining
+     * @see JDOA2Builder#responseCacheMaxBytes(long)
+     */
+    public SessionManagerBuilder responseCacheMaxBytes(long responseCacheMaxBytes) {
+        this.responseCacheMaxBytes = responseCacheMaxBytes;
+        return this;
+    }
+
+    public long responseCacheMaxTotalBytes() {
+        return responseCacheMaxTotalBytes;
+    }
+
+    /**
+     * Sets the maximum total size of the cached responses, across all sessions.
+     *
+     * @param responseCacheMaxTotalBytes response cache max total bytes
+     * @return this instance for chaining
+     * @see JDOA2Builder#responseCacheMaxTotalBytes(long)
+     */
+    public SessionManagerBuilder responseCacheMaxTotalBytes(long responseCacheMaxTotalBytes) {
+        this.responseCacheMaxTotalBytes = responseCacheMaxTotalBytes;
+        return this;
+    }
+
+    public TokenStore tokenStore() {
+        return tokenStore;
+    }
+
+    /**
+     * Sets the store, where the tokens of all sessions are persisted, so sessions survive restarts. The session
+     * manager closes the store when it's closed. Exceptions thrown by the store are ignored, so a failing store never
+     * fails a token exchange or the removal of a session; stores should report their failures themselves.
+     *
+     * @param tokenStore token store
+     * @return this instance for chaining
+     * @see TokenStore#file(java.nio.file.Path)
+     */
+    public SessionManagerBuilder tokenStore(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
+        return this;
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets where all sessions record their metrics, and where the active session count is reported. No metrics are
+     * recorded by default.
+     *
+     * @param metrics metrics
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder metrics(Metrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public boolean virtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Sets whenever the sessions execute asynchronous requests and refreshes on virtual threads instead of the http
+     * client's thread pool, and up to 256 requests, or the http client's limits if higher, run at once instead of the
+     * default 5 per host. Requires Java 21 or newer, and is ignored on older runtimes. Disabled by default.
+     *
+     * @param virtualThreads whenever to use virtual threads
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder virtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    public RetryPolicy retryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets how the requests of all sessions are retried after connection failures and 5xx responses. Requests aren't
+     * retried by default.
+     *
+     * @param retryPolicy retry policy
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = Objects.requireNonNull(retryPolicy, "retryPolicy");
+        return this;
+    }
+
+    public CircuitBreaker circuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets the circuit breaker shared by all sessions, failing requests fast while discord api is degraded. No circuit
+     * breaker is used by default.
+     *
+     * @param circuitBreaker circuit breaker
+     * @return this instance for chaining
+     */
+    public SessionManagerBuilder circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    public String baseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Sets the base url of discord api, which the requests of all sessions are sent to. Defaults to
+     * <code>https://discord.com/api</code>.
+     *
+     * @param baseUrl base url, without a trailing slash
+     * @return this instance for chaining
+     * @see JDOA2Builder#baseUrl(String)
+     */
+    public SessionManagerBuilder baseUrl(String baseUrl) {
+        Objects.requireNonNull(baseUrl, "baseUrl");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        return this;
+    }
+
     public SessionManager build() {
         Objects.requireNonNull(clientId, "clientId");
         Objects.requireNonNull(clientSecret, "clientSecret");
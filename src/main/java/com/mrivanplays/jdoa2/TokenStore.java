@@ -0,0 +1,133 @@
+package com.mrivanplays.jdoa2;
+
+import com.mrivanplays.jdoa2.internal.FileTokenStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import javax.annotation.Nonnull;
+
+/**
+ * Represents a persistent store of the {@link DiscordToken DiscordTokens} of a {@link SessionManager SessionManager's}
+ * sessions, so they survive restarts of your application.
+ * <p>
+ * The session manager stores every token its sessions receive, removes the tokens of the sessions it evicts or which
+ * are removed, and on creation rehydrates a session for every stored token. Rehydrated sessions whose token has
+ * expired meanwhile are refreshed with their refresh token, rather than requiring the user to go through OAuth2 again.
+ * <p>
+ * Methods may be called concurrently from multiple threads.
+ */
+public interface TokenStore extends AutoCloseable {
+
+    /**
+     * Creates a new {@link TokenStore}, backed by an append-only log file. Writes don't block the calling thread: they
+     * are written and synced to disk in batches by a background thread, which also compacts the log once it's mostly
+     * made of stale records.
+     * <p>
+     * The file contains the tokens in plain text, so it must only be readable by your application.
+     *
+     * @param path log file path
+     * @return file backed token store
+     * @throws IOException if the file couldn't be opened or read
+     * @see #file(Path, Consumer)
+     */
+    @Nonnull
+    static TokenStore file(@Nonnull Path path) throws IOException {
+        return new FileTokenStore(path);
+    }
+
+    /**
+     * Creates a new {@link TokenStore}, backed by an append-only log file, like {@link #file(Path)}, passing the errors
+     * of the background writes to the specified handler. Failed writes are retried with the next batch, so a failure
+     * only loses tokens if the store is closed before the log becomes writable again.
+     *
+     * @param path         log file path
+     * @param errorHandler handler of background write errors, called on the writer thread
+     * @return file backed token store
+     * @throws IOException if the file couldn't be opened or read
+     */
+    @Nonnull
+    static TokenStore file(@Nonnull Path path, @Nonnull Consumer<? super IOException> errorHandler)
+            throws IOException {
+        Objects.requireNonNull(errorHandler, "errorHandler");
+        return new FileTokenStore(path, errorHandler);
+    }
+
+    /**
+     * Stores the token of a session, replacing the previous token of the session, if any.
+     *
+     * @param authCode         the auth code of the session
+     * @param token            the token
+     * @param tokenGeneratedIn the time millis the token was received at
+     */
+    void store(@Nonnull String authCode, @Nonnull DiscordToken token, long tokenGeneratedIn);
+
+    /**
+     * Removes the token of a session, if any.
+     *
+     * @param authCode the auth code of the session
+     */
+    void remove(@Nonnull String authCode);
+
+    /**
+     * Loads all stored tokens.
+     *
+     * @return stored tokens
+     */
+    @Nonnull
+    List<Entry> load();
+
+    /**
+     * Writes everything pending and releases the store's resources.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Represents a stored token.
+     */
+    final class Entry {
+
+        private final String authCode;
+        private final DiscordToken token;
+        private final long tokenGeneratedIn;
+
+        public Entry(@Nonnull String authCode, @Nonnull DiscordToken token, long tokenGeneratedIn) {
+            this.authCode = authCode;
+            this.token = token;
+            this.tokenGeneratedIn = tokenGeneratedIn;
+        }
+
+        /**
+         * Returns the auth code of the session this token belongs to.
+         *
+         * @return auth code
+         */
+        @Nonnull
+        public String getAuthCode() {
+            return authCode;
+        }
+
+        /**
+         * Returns the stored token.
+         *
+         * @return token
+         */
+        @Nonnull
+        public DiscordToken getToken() {
+            return token;
+        }
+
+        /**
+         * Returns the time millis the token was received at.
+         *
+         * @return token generation time
+         */
+        public long getTokenGeneratedIn() {
+            return tokenGeneratedIn;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mrivanplays.jdoa2.Metrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Per-route rate limit engine. Tracks discord's rate limit buckets from the <code>X-RateLimit-*</code> headers and
+ * holds requests which would otherwise hit a 429, instead of letting them fail. A global 429 pauses every request made
+ * through the client, see {@link GlobalRateLimit}.
+ * <p>
+ * Only requests tagged with {@link Api} are limited, the rest of the client's requests, e.g. images from the CDN, pass
+ * through untouched.
+ * <p>
+ * Waiting only holds a thread for blocking calls. Asynchronous calls reserve their slots up front and are enqueued
+ * once they're due, see {@link #schedule(OkHttpClient, Request, Callback)} and {@link #reserve(OkHttpClient, Request,
+ * ScheduledCall, Runnable)}.
+ */
+public class BucketRateLimiter implements Interceptor {
+
+    private static final int MAX_RETRIES = 3;
+    private static final long SWEEP_INTERVAL = 60_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "JDOA2 RateLimit Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, RateLimitBucket> routes = new ConcurrentHashMap<>();
+    private final Map<String, RateLimitBucket> buckets = new ConcurrentHashMap<>();
+    private final GlobalRateLimit global = new GlobalRateLimit();
+    private volatile long lastSweep = System.currentTimeMillis();
+
+    /**
+     * Enqueues the specified request on the client, without holding any thread while the request's bucket is
+     * exhausted. The request is instead scheduled to be enqueued once its bucket permits it, and so are its retries
+     * after a 429.
+     *
+     * @param client   http client
+     * @param request  request
+     * @param callback callback to enqueue the request with
+     */
+    public static void schedule(OkHttpClient client, Request request, Callback callback) {
+        if (find(client) == null || request.tag(Api.class) == null) {
+            client.newCall(request).enqueue(callback);
+            return;
+        }
+        ScheduledCall scheduled = new ScheduledCall(true);
+        new DeferringCallback(client, request.newBuilder().tag(ScheduledCall.class, scheduled).build(), scheduled,
+                callback).submit();
+    }
+
+    /**
+     * Reserves the request's slots and runs the specified task, which sends the request, once they're due, without
+     * holding any thread meanwhile. Fresh cache hits run the task right away, as they never reach discord.
+     *
+     * @param client    http client
+     * @param request   request, tagged with the scheduled call
+     * @param scheduled the request's scheduled call
+     * @param task      task sending the request
+     */
+    static void reserve(OkHttpClient client, Request request, ScheduledCall scheduled, Runnable task) {
+        BucketRateLimiter limiter = find(client);
+        ResponseCache cache = request.tag(ResponseCache.class);
+        if (limiter == null || request.tag(Api.class) == null || (cache != null && cache.isFresh(request))) {
+            task.run();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long globalDelay = limiter.global.reserve(now);
+        long delay = globalDelay + limiter.getBucket(getRoute(request)).reserve(now + globalDelay);
+        Metrics metrics = request.tag(Metrics.class);
+        if (metrics != null && delay > 0) {
+            metrics.recordRateLimitWait(TimeUnit.MILLISECONDS.toNanos(delay));
+        }
+        scheduled.reserved();
+        if (delay > 0) {
+            SCHEDULER.schedule(task, delay, TimeUnit.MILLISECONDS);
+        } else {
+            task.run();
+        }
+    }
+
+    static BucketRateLimiter find(OkHttpClient client) {
+        for (Interceptor interceptor : client.interceptors()) {
+            if (interceptor instanceof BucketRateLimiter) {
+                return (BucketRateLimiter) interceptor;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (request.tag(Api.class) == null) {
+            return chain.proceed(request);
+        }
+        ScheduledCall scheduled = request.tag(ScheduledCall.class);
+        boolean deferrable = scheduled != null && scheduled.deferrable;
+        String route = getRoute(request);
+        Metrics metrics = request.tag(Metrics.class);
+        Metrics.Endpoint endpoint = getEndpoint(request);
+        for (int attempt = 0; ; attempt++) {
+            boolean reserved = attempt == 0 && scheduled != null && scheduled.consumeReservation();
+            if (deferrable && !reserved) {
+                // e.g. a cached response expired since the call was scheduled, let the scheduler reserve its slots
+                throw scheduled.deferUnsent();
+            }
+            long now = System.currentTimeMillis();
+            long globalDelay = reserved ? global.reserveIfPaused(now) : global.reserve(now);
+            if (globalDelay > 0) {
+                if (deferrable) {
+                    throw scheduled.deferUnsent();
+                }
+                hold(globalDelay, metrics);
+            }
+            if (!reserved) {
+                long delay = getBucket(route).reserve(System.currentTimeMillis());
+                if (delay > 0) {
+                    hold(delay, metrics);
+                }
+            }
+            if (attempt > 0 && metrics != null) {
+                metrics.recordRetry();
+            }
+            long start = System.nanoTime();
+            Response response = chain.proceed(request);
+            if (metrics != null && endpoint != null) {
+                metrics.recordResponse(endpoint, response.code(), System.nanoTime() - start);
+            }
+            now = System.currentTimeMillis();
+            RateLimitBucket bucket = updateBucket(route, request.header("Authorization"), response, now);
+            int retries = deferrable ? scheduled.rateLimitRetries : attempt;
+            if (response.code() != 429 || retries >= MAX_RETRIES) {
+                sweep(now);
+                return response;
+            }
+            RateLimitedResponse body = readRateLimitedResponse(response);
+            long retryAfter = getRetryAfter(response);
+            if (retryAfter < 0 && body != null) {
+                retryAfter = (long) Math.ceil(body.getRetryAfter() * 1000);
+            }
+            if (retryAfter < 0) {
+                return response;
+            }
+            if (isGlobal(response) || (body != null && body.isGlobal())) {
+                global.pause(now + retryAfter);
+            } else {
+                bucket.block(now + retryAfter);
+            }
+            if (deferrable) {
+                // the response is handed back, and the scheduler enqueues the retry once the rate limit permits it
+                scheduled.rateLimitRetries++;
+                scheduled.defer(0);
+                if (metrics != null) {
+                    metrics.recordRetry();
+                }
+                return response;
+            }
+            response.close();
+        }
+    }
+
+    private RateLimitBucket getBucket(String route) {
+        return routes.computeIfAbsent(route, key -> new RateLimitBucket());
+    }
+
+    private RateLimitBucket updateBucket(String route, String authorization, Response response, long now) {
+        String hash = response.header("X-RateLimit-Bucket");
+        if (hash == null) {
+            RateLimitBucket bucket = getBucket(route);
+            bucket.update(response, now);
+            return bucket;
+        }
+        // routes discord reports as sharing a bucket share the same state, per authorization
+        String key = authorization == null ? hash : hash + " " + authorization;
+        RateLimitBucket bucket = buckets.computeIfAbsent(key, k -> new RateLimitBucket());
+        bucket.update(response, now);
+        RateLimitBucket previous = routes.put(route, bucket);
+        if (previous != null && previous != bucket) {
+            // requests already queued on the route's own bucket are sent against the shared limits too
+            bucket.absorb(previous, now);
+        }
+        return bucket;
+    }
+
+    private void sweep(long now) {
+        if (now - lastSweep < SWEEP_INTERVAL) {
+            return;
+        }
+        lastSweep = now;
+        sweep(routes, now);
+        sweep(buckets, now);
+    }
+
+    private static void sweep(Map<String, RateLimitBucket> map, long now) {
+        for (Iterator<RateLimitBucket> iterator = map.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isIdle(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    static String getRoute(Request request) {
+        // bearer tokens are limited separately from each other, keyed by the whole value as its hash code may collide.
+        // encoded paths can't contain spaces, so no path and token pair clashes with another
+        String authorization = request.header("Authorization");
+        String route = request.method() + " " + request.url().encodedPath();
+        return authorization == null ? route : route + " " + authorization;
+    }
+
+    static long getRetryAfter(Response response) {
+        String header = response.header("X-RateLimit-Reset-After");
+        if (header == null) {
+            header = response.header("Retry-After");
+        }
+        if (header == null) {
+            return -1;
+        }
+        try {
+            return (long) Math.ceil(Double.parseDouble(header) * 1000);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static boolean isGlobal(Response response) {
+        return "true".equalsIgnoreCase(response.header("X-RateLimit-Global"))
+                || "global".equalsIgnoreCase(response.header("X-RateLimit-Scope"));
+    }
+
+    private static RateLimitedResponse readRateLimitedResponse(Response response) {
+        try {
+            // peeked, so the caller can still read the body if this is the last attempt
+            ResponseBody body = response.peekBody(4096);
+            return MAPPER.readValue(body.bytes(), RateLimitedResponse.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static Metrics.Endpoint getEndpoint(Request request) {
+        String path = request.url().encodedPath();
+        if (path.endsWith("/oauth2/token")) {
+            return Metrics.Endpoint.TOKEN;
+        } else if (path.endsWith("/users/@me/guilds")) {
+            return Metrics.Endpoint.GUILDS;
+        } else if (path.endsWith("/users/@me")) {
+            return Metrics.Endpoint.CURRENT_USER;
+        }
+        return null;
+    }
+
+    private static void hold(long delay, Metrics metrics) throws InterruptedIOException {
+        long start = System.nanoTime();
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for rate limit");
+        } finally {
+            if (metrics != null) {
+                metrics.recordRateLimitWait(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Marks requests to discord's api, the only ones which are rate limited.
+     */
+    public enum Api {
+        INSTANCE
+    }
+
+    private static final class DeferringCallback implements Callback {
+
+        private final OkHttpClient client;
+        private final Request request;
+        private final ScheduledCall scheduled;
+        private final Callback callback;
+
+        DeferringCallback(OkHttpClient client, Request request, ScheduledCall scheduled, Callback callback) {
+            this.client = client;
+            this.request = request;
+            this.scheduled = scheduled;
+            this.callback = callback;
+        }
+
+        void submit() {
+            reserve(client, request, scheduled, () -> client.newCall(request).enqueue(this));
+        }
+
+        private void resubmit() {
+            SCHEDULER.schedule(this::submit, scheduled.takeRetryAfter(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            if (scheduled.isDeferred()) {
+                resubmit();
+            } else {
+                callback.onFailure(call, e);
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            if (scheduled.isDeferred()) {
+                response.close();
+                resubmit();
+            } else {
+                callback.onResponse(call, response);
+            }
+        }
+    }
+}
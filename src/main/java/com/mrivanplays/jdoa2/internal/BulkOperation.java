@@ -0,0 +1,108 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.mrivanplays.jdoa2.BulkResultListener;
+import com.mrivanplays.jdoa2.JDOA2;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Runs an asynchronous operation on many sessions, with at most <code>parallelism</code> operations in flight.
+ * <p>
+ * Each of the <code>parallelism</code> lanes takes the next session as soon as its previous operation completes, so no
+ * thread is held while waiting. Failures are reported to the listener and don't stop the other sessions. Neither does
+ * the listener throwing, which instead completes the returned future exceptionally once all sessions are done.
+ */
+public class BulkOperation<T> {
+
+    private final Iterator<String> authCodes;
+    private final Function<String, JDOA2> sessions;
+    private final Function<JDOA2, ? extends CompletionStage<T>> operation;
+    private final BulkResultListener<? super T> listener;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final AtomicInteger lanes = new AtomicInteger();
+    private final AtomicReference<RuntimeException> listenerError = new AtomicReference<>();
+
+    public BulkOperation(Iterator<String> authCodes, Function<String, JDOA2> sessions,
+                         Function<JDOA2, ? extends CompletionStage<T>> operation,
+                         BulkResultListener<? super T> listener) {
+        this.authCodes = authCodes;
+        this.sessions = sessions;
+        this.operation = operation;
+        this.listener = listener;
+    }
+
+    public CompletableFuture<Void> start(int parallelism) {
+        int lanes = Math.max(parallelism, 1);
+        this.lanes.set(lanes);
+        for (int i = 0; i < lanes; i++) {
+            run();
+        }
+        return done;
+    }
+
+    private void run() {
+        while (true) {
+            String authCode = next();
+            if (authCode == null) {
+                if (lanes.decrementAndGet() == 0) {
+                    RuntimeException error = listenerError.get();
+                    if (error != null) {
+                        done.completeExceptionally(error);
+                    } else {
+                        done.complete(null);
+                    }
+                }
+                return;
+            }
+            CompletableFuture<T> stage = apply(authCode);
+            if (stage.isDone()) {
+                // loop rather than recurse, so a batch of immediate failures doesn't overflow the stack
+                stage.whenComplete((result, error) -> report(authCode, result, error));
+                continue;
+            }
+            stage.whenComplete((result, error) -> {
+                report(authCode, result, error);
+                run();
+            });
+            return;
+        }
+    }
+
+    private synchronized String next() {
+        return authCodes.hasNext() ? authCodes.next() : null;
+    }
+
+    private CompletableFuture<T> apply(String authCode) {
+        try {
+            JDOA2 session = sessions.apply(authCode);
+            if (session == null) {
+                throw new IllegalArgumentException("No session with auth code '" + authCode + "'");
+            }
+            return operation.apply(session).toCompletableFuture();
+        } catch (RuntimeException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private void report(String authCode, T result, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        try {
+            listener.onResult(authCode, error == null ? result : null, error);
+        } catch (RuntimeException e) {
+            // the first one fails the whole operation, later ones are attached to it
+            if (!listenerError.compareAndSet(null, e) && listenerError.get() != e) {
+                listenerError.get().addSuppressed(e);
+            }
+        }
+    }
+}
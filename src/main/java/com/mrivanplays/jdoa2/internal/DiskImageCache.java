@@ -0,0 +1,163 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least recently used cache of images on disk, one file per image, bounded by their total size.
+ * <p>
+ * Files are written to a temporary file and atomically moved in place, so readers never see partial images. The
+ * recency order is kept in memory, and rebuilt from the files' modification times on start, which reads update too.
+ * <p>
+ * The cache is best effort: an image which fails to be read or written is downloaded again next time, and the failure
+ * is only counted.
+ */
+public class DiskImageCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, Long> files = new LinkedHashMap<>(64, 0.75f, true);
+    private final LongAdder errors = new LongAdder();
+    private long size;
+
+    public DiskImageCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    // left by a crash mid write
+                    Files.deleteIfExists(file);
+                } else if (Files.isRegularFile(file)) {
+                    existing.add(file);
+                }
+            }
+        }
+        Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+        for (Path file : existing) {
+            attributes.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+        }
+        existing.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+        for (Path file : existing) {
+            long length = attributes.get(file).size();
+            files.put(file.getFileName().toString(), length);
+            size += length;
+        }
+        delete(evict());
+    }
+
+    public byte[] get(String name) {
+        synchronized (this) {
+            if (files.get(name) == null) {
+                return null;
+            }
+        }
+        Path file = directory.resolve(name);
+        byte[] image;
+        try {
+            image = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            forget(name);
+            return null;
+        } catch (IOException e) {
+            errors.increment();
+            // unreadable, make room for a fresh copy
+            forget(name);
+            delete(Collections.singletonList(name));
+            return null;
+        }
+        try {
+            // keeps the recency order across restarts
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            errors.increment();
+        }
+        return image;
+    }
+
+    public void put(String name, byte[] image) {
+        if (image.length > maxBytes) {
+            return;
+        }
+        Path file = directory.resolve(name);
+        Path temp = directory.resolve(name + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(image);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            errors.increment();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+            return;
+        }
+        List<String> evicted;
+        synchronized (this) {
+            Long previous = files.put(name, (long) image.length);
+            size += image.length - (previous == null ? 0 : previous);
+            evicted = evict();
+        }
+        delete(evicted);
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    private synchronized void forget(String name) {
+        Long previous = files.remove(name);
+        if (previous != null) {
+            size -= previous;
+        }
+    }
+
+    private List<String> evict() {
+        List<String> evicted = new ArrayList<>();
+        for (Iterator<Map.Entry<String, Long>> iterator = files.entrySet().iterator();
+             size > maxBytes && iterator.hasNext(); ) {
+            Map.Entry<String, Long> entry = iterator.next();
+            size -= entry.getValue();
+            evicted.add(entry.getKey());
+            iterator.remove();
+        }
+        return evicted;
+    }
+
+    private void delete(List<String> names) {
+        for (String name : names) {
+            try {
+                Files.deleteIfExists(directory.resolve(name));
+            } catch (IOException e) {
+                errors.increment();
+            }
+        }
+    }
+}
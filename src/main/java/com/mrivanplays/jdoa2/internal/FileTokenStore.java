@@ -0,0 +1,381 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.mrivanplays.jdoa2.DiscordToken;
+import com.mrivanplays.jdoa2.TokenStore;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * {@link TokenStore} backed by an append-only log of checksummed records.
+ * <p>
+ * Callers only update the in-memory state and queue the record. A single writer thread appends everything queued
+ * since its last write at once and syncs it with one fsync, so the fsync cost is shared by all records of a batch.
+ * Once the log is more than twice as big as the live records and over 1 MiB, the writer rewrites it with only the
+ * live records and atomically swaps it in. A torn record at the end of the log, left by a crash, is dropped on load.
+ * <p>
+ * Write and compaction failures are passed to the error handler. A batch which failed to be written is cut off the log
+ * and retried with the next one, so no record is dropped unless the store is closed while the log is still failing.
+ * Updates made after the store was closed are ignored.
+ */
+public class FileTokenStore implements TokenStore {
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final byte[] CLOSE = new byte[0];
+    private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+    private final Path path;
+    private final Path compactionPath;
+    private final Map<String, byte[]> records = new HashMap<>();
+    private final BlockingQueue<byte[]> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final Consumer<? super IOException> errorHandler;
+    private long liveBytes;
+    private volatile boolean closed;
+
+    // accessed by the writer thread only, once started
+    private FileChannel channel;
+    private long logSize;
+
+    public FileTokenStore(Path path) throws IOException {
+        this(path, error -> {
+        });
+    }
+
+    public FileTokenStore(Path path, Consumer<? super IOException> errorHandler) throws IOException {
+        this.path = path;
+        this.errorHandler = errorHandler;
+        this.compactionPath = path.resolveSibling(path.getFileName() + ".compact");
+        Files.deleteIfExists(compactionPath);
+        long validSize = Files.exists(path) ? replay() : 0;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validSize);
+        channel.position(validSize);
+        logSize = validSize;
+        writer = new Thread(this::write, "JDOA2 Token Store Writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void store(String authCode, DiscordToken token, long tokenGeneratedIn) {
+        byte[] record = frame(encodePut(authCode, token, tokenGeneratedIn));
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            byte[] previous = records.put(authCode, record);
+            liveBytes += record.length - (previous == null ? 0 : previous.length);
+            // queued under the same lock as the map update, so the log order matches the map order
+            pending.add(record);
+        }
+    }
+
+    @Override
+    public void remove(String authCode) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            byte[] previous = records.remove(authCode);
+            if (previous == null) {
+                return;
+            }
+            liveBytes -= previous.length;
+            pending.add(frame(encodeRemove(authCode)));
+        }
+    }
+
+    @Override
+    public List<Entry> load() {
+        List<byte[]> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(records.values());
+        }
+        List<Entry> entries = new ArrayList<>(snapshot.size());
+        for (byte[] record : snapshot) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 8, record.length - 8))) {
+                in.readByte();
+                entries.add(readPut(in));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.add(CLOSE);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long replay() throws IOException {
+        long validSize = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                long checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt() & 0xFFFFFFFFL;
+                    if (length <= 0 || length > 1024 * 1024) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (checksum(payload) != checksum) {
+                    break;
+                }
+                apply(payload);
+                validSize += 8 + length;
+            }
+        }
+        return validSize;
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte op = in.readByte();
+            if (op == PUT) {
+                Entry entry = readPut(in);
+                byte[] record = frame(payload);
+                byte[] previous = records.put(entry.getAuthCode(), record);
+                liveBytes += record.length - (previous == null ? 0 : previous.length);
+            } else if (op == REMOVE) {
+                byte[] previous = records.remove(in.readUTF());
+                if (previous != null) {
+                    liveBytes -= previous.length;
+                }
+            }
+        }
+    }
+
+    private void write() {
+        List<byte[]> batch = new ArrayList<>();
+        boolean closing = false;
+        while (true) {
+            try {
+                // a batch which failed to be written is kept, and retried along with whatever was queued meanwhile
+                byte[] record = batch.isEmpty() ? pending.take() : pending.poll(RETRY_DELAY, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    batch.add(record);
+                }
+            } catch (InterruptedException e) {
+                continue;
+            }
+            pending.drainTo(batch);
+            for (byte[] record : batch) {
+                if (record == CLOSE) {
+                    closing = true;
+                }
+            }
+            try {
+                append(batch);
+                batch.clear();
+            } catch (IOException e) {
+                discardTornWrite();
+                report(e);
+                if (closing) {
+                    // nothing will retry it anymore
+                    break;
+                }
+                continue;
+            }
+            if (logSize > MIN_COMPACTION_SIZE && logSize > 2 * liveBytes()) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    report(e);
+                }
+            }
+            if (closing) {
+                break;
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            report(e);
+        }
+    }
+
+    private void append(List<byte[]> batch) throws IOException {
+        if (!channel.isOpen()) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        int size = 0;
+        for (byte[] record : batch) {
+            size += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] record : batch) {
+            buffer.put(record);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        logSize += size;
+    }
+
+    private void discardTornWrite() {
+        // records appended after a torn one would never be replayed, so cut the log back to its last good size
+        try {
+            channel.truncate(logSize);
+        } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void report(IOException error) {
+        try {
+            errorHandler.accept(error);
+        } catch (RuntimeException ignored) {
+            // a failing handler must not stop the writer
+        }
+    }
+
+    private synchronized long liveBytes() {
+        return liveBytes;
+    }
+
+    private void compact() throws IOException {
+        List<byte[]> snapshot;
+        synchronized (this) {
+            // records queued after this point are appended to the compacted log, and replaying them again is harmless
+            snapshot = new ArrayList<>(records.values());
+        }
+        long size = 0;
+        try (FileChannel compacted = FileChannel.open(compactionPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (byte[] record : snapshot) {
+                ByteBuffer buffer = ByteBuffer.wrap(record);
+                while (buffer.hasRemaining()) {
+                    compacted.write(buffer);
+                }
+                size += record.length;
+            }
+            compacted.force(true);
+        }
+        // some platforms can't replace a file which is open, so the log is reopened whether or not the move worked
+        channel.close();
+        try {
+            Files.move(compactionPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logSize = size;
+        } catch (IOException e) {
+            Files.deleteIfExists(compactionPath);
+            throw e;
+        } finally {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+    }
+
+    private static byte[] encodePut(String authCode, DiscordToken token, long tokenGeneratedIn) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(PUT);
+            out.writeUTF(authCode);
+            out.writeUTF(token.getAccessToken());
+            out.writeLong(token.getExpiresIn());
+            writeNullable(out, token.getRefreshToken());
+            writeNullable(out, token.getScope());
+            writeNullable(out, token.getTokenType());
+            out.writeLong(tokenGeneratedIn);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeRemove(String authCode) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(REMOVE);
+            out.writeUTF(authCode);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry readPut(DataInputStream in) throws IOException {
+        String authCode = in.readUTF();
+        String accessToken = in.readUTF();
+        long expiresIn = in.readLong();
+        String refreshToken = readNullable(in);
+        String scope = readNullable(in);
+        String tokenType = readNullable(in);
+        long tokenGeneratedIn = in.readLong();
+        return new Entry(authCode, new DiscordToken(accessToken, expiresIn, refreshToken, scope, tokenType),
+                tokenGeneratedIn);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static byte[] frame(byte[] payload) {
+        return ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) checksum(payload))
+                .put(payload)
+                .array();
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return crc.getValue();
+    }
+}
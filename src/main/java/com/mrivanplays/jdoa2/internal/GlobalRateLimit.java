@@ -0,0 +1,54 @@
+package com.mrivanplays.jdoa2.internal;
+
+/**
+ * Global rate limit coordinator, shared by every request made through the same http client.
+ * <p>
+ * Once discord reports a global rate limit, every request waits for it to end, and requests arriving meanwhile are
+ * then released one by one in arrival order, spaced out to discord's global limit of 50 requests per second, rather
+ * than all at once.
+ */
+public class GlobalRateLimit {
+
+    private static final long RELEASE_INTERVAL = 1000 / 50;
+
+    private long pausedUntil;
+    private long nextRelease;
+
+    /**
+     * Reserves a release slot for a request.
+     *
+     * @param now current time millis
+     * @return millis to wait before sending the request
+     */
+    public synchronized long reserve(long now) {
+        if (now >= pausedUntil && now >= nextRelease) {
+            return 0;
+        }
+        long release = Math.max(Math.max(pausedUntil, nextRelease), now);
+        nextRelease = release + RELEASE_INTERVAL;
+        return release - now;
+    }
+
+    /**
+     * Reserves a release slot for a request which already got one from {@link #reserve(long)}, only if a global rate
+     * limit began meanwhile.
+     *
+     * @param now current time millis
+     * @return millis to wait before sending the request
+     */
+    public synchronized long reserveIfPaused(long now) {
+        return now < pausedUntil ? reserve(now) : 0;
+    }
+
+    /**
+     * Pauses all requests until the specified time.
+     *
+     * @param until time millis the global rate limit ends at
+     */
+    public synchronized void pause(long until) {
+        if (until > pausedUntil) {
+            pausedUntil = until;
+            nextRelease = Math.max(nextRelease, until);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+public final class HttpClients {
+
+    private static final Map<ExecutorService, Boolean> VIRTUAL_EXECUTORS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    // virtual threads are cheap, and all calls go to discord, so the platform thread defaults of 64 and 5 only queue
+    private static final int VIRTUAL_MAX_REQUESTS = 256;
+    // clients sharing a connection pool talk to discord as the same application, so they share the rate limits too
+    private static final Map<ConnectionPool, BucketRateLimiter> LIMITERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private HttpClients() {
+    }
+
+    /**
+     * Returns the specified client with the JDOA2 interceptors installed, or the client itself if it already has them.
+     * Clients derived from each other, and clients installed from clients sharing a connection pool, share the same rate
+     * limit buckets.
+     *
+     * @param client http client
+     * @return http client with the interceptors installed
+     */
+    public static OkHttpClient install(OkHttpClient client) {
+        if (BucketRateLimiter.find(client) != null) {
+            return client;
+        }
+        // cache hits and coalesced calls must not take up rate limit slots, so they go first
+        return client.newBuilder()
+                .addInterceptor(ResponseCache.INTERCEPTOR)
+                .addInterceptor(RequestCoalescer.INTERCEPTOR)
+                .addInterceptor(RetryInterceptor.INTERCEPTOR)
+                .addInterceptor(LIMITERS.computeIfAbsent(client.connectionPool(), pool -> new BucketRateLimiter()))
+                .build();
+    }
+
+    /**
+     * Returns the specified client with the JDOA2 interceptors installed, and if requested and supported by the
+     * runtime, with its asynchronous calls dispatched on virtual threads. The dispatcher's request limits, in total and
+     * per host, are then raised to at least 256.
+     *
+     * @param client         http client
+     * @param virtualThreads whenever to dispatch on virtual threads
+     * @return http client with the interceptors installed
+     */
+    public static OkHttpClient install(OkHttpClient client, boolean virtualThreads) {
+        OkHttpClient installed = install(client);
+        Dispatcher current = installed.dispatcher();
+        if (!virtualThreads || !VirtualThreads.isSupported()
+                || VIRTUAL_EXECUTORS.containsKey(current.executorService())) {
+            return installed;
+        }
+        ExecutorService executor = VirtualThreads.newExecutor("JDOA2 Dispatcher");
+        VIRTUAL_EXECUTORS.put(executor, Boolean.TRUE);
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(Math.max(current.getMaxRequests(), VIRTUAL_MAX_REQUESTS));
+        dispatcher.setMaxRequestsPerHost(Math.max(current.getMaxRequestsPerHost(), VIRTUAL_MAX_REQUESTS));
+        return installed.newBuilder().dispatcher(dispatcher).build();
+    }
+}
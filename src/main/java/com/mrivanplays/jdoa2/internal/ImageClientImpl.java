@@ -0,0 +1,241 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.mrivanplays.jdoa2.CurrentUser;
+import com.mrivanplays.jdoa2.Guild;
+import com.mrivanplays.jdoa2.ImageClient;
+import com.mrivanplays.jdoa2.ImageClientBuilder;
+import com.mrivanplays.jdoa2.ImageFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+public class ImageClientImpl implements ImageClient {
+
+    // disk reads and writes never run on the caller's or the http client's threads
+    private static final ExecutorService DISK_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "JDOA2 Image Disk Cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final OkHttpClient httpClient;
+    private final String cdnUrl;
+    private final MemoryImageCache memoryCache;
+    private final DiskImageCache diskCache;
+    // image requests carry no authorization, so the key is the url, which includes the id, hash, size and format
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+
+    public ImageClientImpl(ImageClientBuilder builder) {
+        this.httpClient = builder.httpClient();
+        this.cdnUrl = builder.cdnUrl();
+        if (builder.memoryCacheMaxBytes() > 0) {
+            this.memoryCache = new MemoryImageCache(builder.memoryCacheMaxBytes());
+        } else {
+            this.memoryCache = null;
+        }
+        if (builder.diskCacheDirectory() != null && builder.diskCacheMaxBytes() > 0) {
+            try {
+                this.diskCache = new DiskImageCache(builder.diskCacheDirectory(), builder.diskCacheMaxBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            this.diskCache = null;
+        }
+    }
+
+    @Override
+    @Nonnull
+    public String getAvatarUrl(@Nonnull CurrentUser user, int size, @Nullable ImageFormat format) {
+        return cdnUrl + getAvatarPath(user, size, format);
+    }
+
+    @Override
+    @Nullable
+    public String getGuildIconUrl(@Nonnull Guild guild, int size, @Nullable ImageFormat format) {
+        String path = getGuildIconPath(guild, size, format);
+        return path == null ? null : cdnUrl + path;
+    }
+
+    @Override
+    @Nonnull
+    public CompletionStage<byte[]> getAvatar(@Nonnull CurrentUser user, int size, @Nullable ImageFormat format) {
+        String path;
+        try {
+            path = getAvatarPath(user, size, format);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        return fetch(path);
+    }
+
+    @Override
+    @Nonnull
+    public CompletionStage<byte[]> getGuildIcon(@Nonnull Guild guild, int size, @Nullable ImageFormat format) {
+        String path;
+        try {
+            path = getGuildIconPath(guild, size, format);
+        } catch (RuntimeException e) {
+            return failed(e);
+        }
+        if (path == null) {
+            return failed(new IllegalArgumentException("Guild " + guild.getIdLong() + " has no icon"));
+        }
+        return fetch(path);
+    }
+
+    @Override
+    public void invalidateMemoryCache() {
+        if (memoryCache != null) {
+            memoryCache.invalidate();
+        }
+    }
+
+    @Override
+    public long getDiskCacheErrors() {
+        return diskCache == null ? 0 : diskCache.getErrors();
+    }
+
+    private static String getAvatarPath(CurrentUser user, int size, ImageFormat format) {
+        Objects.requireNonNull(user, "user");
+        String avatar = user.getAvatar();
+        if (avatar == null) {
+            if (format != null && format != ImageFormat.PNG) {
+                throw new IllegalArgumentException("Default avatars are only available as png");
+            }
+            // users who migrated to unique usernames have no discriminator, and 6 default avatars
+            String discriminator = user.getDiscriminator();
+            long index = discriminator == null || discriminator.equals("0")
+                    ? (user.getIdLong() >>> 22) % 6
+                    : Integer.parseInt(discriminator) % 5;
+            return "/embed/avatars/" + index + ".png?size=" + checkSize(size);
+        }
+        return "/avatars/" + user.getIdLong() + "/" + getFileName(avatar, size, format);
+    }
+
+    private static String getGuildIconPath(Guild guild, int size, ImageFormat format) {
+        Objects.requireNonNull(guild, "guild");
+        String icon = guild.getIcon();
+        if (icon == null) {
+            return null;
+        }
+        return "/icons/" + guild.getIdLong() + "/" + getFileName(icon, size, format);
+    }
+
+    private static String getFileName(String hash, int size, ImageFormat format) {
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            // hashes end up in file names of the disk cache
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_') {
+                throw new IllegalArgumentException("Invalid image hash '" + hash + "'");
+            }
+        }
+        boolean animated = hash.startsWith("a_");
+        if (format == null) {
+            format = animated ? ImageFormat.GIF : ImageFormat.PNG;
+        } else if (format == ImageFormat.GIF && !animated) {
+            throw new IllegalArgumentException("Image '" + hash + "' isn't animated, so it isn't available as gif");
+        }
+        return hash + "." + format.getExtension() + "?size=" + checkSize(size);
+    }
+
+    private static int checkSize(int size) {
+        if (size < 16 || size > 4096 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Image size must be a power of 2 between 16 and 4096, got " + size);
+        }
+        return size;
+    }
+
+    private CompletionStage<byte[]> fetch(String path) {
+        // e.g. /avatars/80351110224678912/8342729096ea3675442027381ff50dfe.png?size=128
+        String key = path.substring(1).replace('/', '-').replace("?size=", "-");
+        byte[] cached = memoryCache == null ? null : memoryCache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.clone());
+        }
+        Request request = new Request.Builder()
+                .get()
+                .url(cdnUrl + path)
+                .header("User-Agent", JDOA2Impl.USER_AGENT)
+                .build();
+        CompletableFuture<byte[]> image = new CompletableFuture<>();
+        coalescer.coalesce(request, () -> load(key, request)).whenComplete((bytes, error) -> {
+            if (error != null) {
+                image.completeExceptionally(error);
+            } else {
+                // the cached bytes are shared, every caller gets its own copy
+                image.complete(bytes.clone());
+            }
+        });
+        return image;
+    }
+
+    private CompletableFuture<byte[]> load(String key, Request request) {
+        if (diskCache == null) {
+            return download(key, request);
+        }
+        return CompletableFuture.supplyAsync(() -> diskCache.get(key), DISK_EXECUTOR).thenCompose(stored -> {
+            if (stored == null) {
+                return download(key, request);
+            }
+            if (memoryCache != null) {
+                memoryCache.put(key, stored);
+            }
+            return CompletableFuture.completedFuture(stored);
+        });
+    }
+
+    private CompletableFuture<byte[]> download(String key, Request request) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                byte[] image;
+                try (ResponseBody body = response.body()) {
+                    if (response.code() != 200) {
+                        future.completeExceptionally(new IOException("CDN responded with " + response.code()
+                                + " to " + request.url()));
+                        return;
+                    }
+                    image = body.bytes();
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                if (memoryCache != null) {
+                    memoryCache.put(key, image);
+                }
+                future.complete(image);
+                if (diskCache != null) {
+                    DISK_EXECUTOR.execute(() -> diskCache.put(key, image));
+                }
+            }
+        });
+        return future;
+    }
+
+    private static <T> CompletionStage<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+}
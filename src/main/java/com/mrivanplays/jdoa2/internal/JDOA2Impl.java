@@ -1,75 +1,172 @@
 package com.mrivanplays.jdoa2.internal;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.github.natanbc.reliqua.Reliqua;
 import com.github.natanbc.reliqua.request.PendingRequest;
 import com.mrivanplays.jdoa2.ApplicationInfo;
 import com.mrivanplays.jdoa2.AuthenticationException;
+import com.mrivanplays.jdoa2.CircuitBreaker;
 import com.mrivanplays.jdoa2.CurrentUser;
 import com.mrivanplays.jdoa2.DiscordToken;
-import com.mrivanplays.jdoa2.Guild;
+import com.mrivanplays.jdoa2.GuildSet;
 import com.mrivanplays.jdoa2.JDOA2;
 import com.mrivanplays.jdoa2.JDOA2Builder;
 import com.mrivanplays.jdoa2.JDOA2Utils;
+import com.mrivanplays.jdoa2.Metrics;
 import com.mrivanplays.jdoa2.MissingScopeException;
 import com.mrivanplays.jdoa2.RateLimitedException;
+import com.mrivanplays.jdoa2.RetryPolicy;
+import com.mrivanplays.jdoa2.Scope;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
 import javax.annotation.Nonnull;
 
 import okhttp3.Call;
-import okhttp3.MediaType;
+import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 
-public class JDOA2Impl extends Reliqua implements JDOA2 {
+/**
+ * A session. Everything but the auth code and the token state lives in the {@link SessionConfig} shared with the
+ * other sessions of the same session manager, so idle sessions stay small.
+ */
+public class JDOA2Impl implements JDOA2 {
 
-    private ObjectMapper jsonMapper;
+    private final SessionConfig config;
+    private final String authCode;
 
-    private DiscordToken token;
-    private long tokenGeneratedIn;
+    private volatile DiscordToken token;
+    private volatile long tokenGeneratedIn;
 
-    private ApplicationInfo applicationInfo;
+    // the in flight token exchange, or the last one if it succeeded less than TOKEN_EXCHANGE_MEMO_MILLIS ago
+    private CompletableFuture<DiscordToken> tokenExchange;
+    private long tokenExchangeMemoizedUntil;
 
-    private static final String BASE_API_URL = "https://discord.com/api";
-    private static final String USER_IDENTIFICATION_URL = BASE_API_URL + "/users/@me";
-    private static final String USER_GUILDS_URL = USER_IDENTIFICATION_URL + "/guilds";
-    private static final String TOKEN_BASE_URL = BASE_API_URL + "/oauth2/token";
-    private static final String USER_AGENT = "JDOA2 Oauth2(" + JDOA2Utils.GITHUB + " | " + JDOA2Utils.VERSION + ")";
+    private static final long TOKEN_EXCHANGE_MEMO_MILLIS = 5000;
+    static final String USER_AGENT = "JDOA2 Oauth2(" + JDOA2Utils.GITHUB + " | " + JDOA2Utils.VERSION + ")";
 
     public JDOA2Impl(JDOA2Builder builder) {
-        super(builder.httpClient());
-        this.applicationInfo = builder.applicationInfo();
-        this.jsonMapper = builder.jsonMapper();
+        this(builder, null);
+    }
+
+    public JDOA2Impl(JDOA2Builder builder, Consumer<JDOA2Impl> tokenListener) {
+        this(new SessionConfig(builder.applicationInfo().getClientId(), builder.applicationInfo().getClientSecret(),
+                builder.applicationInfo().getRedirectUri(), builder, tokenListener),
+                builder.applicationInfo().getAuthCode());
+    }
+
+    public JDOA2Impl(SessionConfig config, String authCode) {
+        this.config = config;
+        this.authCode = authCode;
     }
 
     @Override
     @Nonnull
     public DiscordToken doTokenExchange() {
-        RequestParams params = getTokenRequestParams();
-        params.put("grant_type", "authorization_code");
-        params.put("code", applicationInfo.getAuthCode());
-        return doTokenExchange(params);
+        return exchangeToken(false);
+    }
+
+    @Override
+    @Nonnull
+    public CompletionStage<DiscordToken> doTokenExchangeAsync() {
+        return exchangeTokenAsync(false);
     }
 
     @Override
     @Nonnull
     public DiscordToken doTokenExchangeUsingRefreshToken() {
-        if (token != null) {
-            RequestParams params = getTokenRequestParams();
-            params.put("grant_type", "refresh_token");
-            params.put("refresh_token", token.getRefreshToken());
-            return doTokenExchange(params);
+        return exchangeToken(token != null);
+    }
+
+    @Override
+    @Nonnull
+    public CompletionStage<DiscordToken> doTokenExchangeUsingRefreshTokenAsync() {
+        return exchangeTokenAsync(token != null);
+    }
+
+    // Exchanges and refreshes are single flight: the auth code may only be used once, and a refresh token is
+    // invalidated once it's used, so concurrent and immediately repeated calls get the token of the first one.
+
+    private DiscordToken exchangeToken(boolean refresh) {
+        CompletableFuture<DiscordToken> flight = new CompletableFuture<>();
+        CompletableFuture<DiscordToken> existing = joinTokenExchange(flight);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new AuthenticationException(e.getCause());
+            }
+        }
+        try {
+            DiscordToken exchanged = doTokenExchange(createTokenBody(refresh));
+            completeTokenExchange(flight, refresh, exchanged, null);
+            return exchanged;
+        } catch (RuntimeException e) {
+            completeTokenExchange(flight, refresh, null, e);
+            throw e;
+        }
+    }
+
+    private CompletionStage<DiscordToken> exchangeTokenAsync(boolean refresh) {
+        CompletableFuture<DiscordToken> flight = new CompletableFuture<>();
+        CompletableFuture<DiscordToken> existing = joinTokenExchange(flight);
+        if (existing != null) {
+            return RequestCoalescer.copy(existing);
+        }
+        try {
+            Request request = createTokenRequest(createTokenBody(refresh));
+            enqueue(request, this::readToken)
+                    .whenComplete((exchanged, error) -> completeTokenExchange(flight, refresh, exchanged, error));
+        } catch (RuntimeException e) {
+            completeTokenExchange(flight, refresh, null, e);
+        }
+        return RequestCoalescer.copy(flight);
+    }
+
+    private synchronized CompletableFuture<DiscordToken> joinTokenExchange(CompletableFuture<DiscordToken> flight) {
+        CompletableFuture<DiscordToken> current = tokenExchange;
+        if (current != null && (!current.isDone() || System.currentTimeMillis() < tokenExchangeMemoizedUntil)) {
+            return current;
+        }
+        tokenExchange = flight;
+        return null;
+    }
+
+    private void completeTokenExchange(CompletableFuture<DiscordToken> flight, boolean refresh,
+                                       DiscordToken exchanged, Throwable error) {
+        synchronized (this) {
+            if (error != null) {
+                if (tokenExchange == flight) {
+                    tokenExchange = null;
+                }
+            } else {
+                tokenExchangeMemoizedUntil = System.currentTimeMillis() + TOKEN_EXCHANGE_MEMO_MILLIS;
+            }
+        }
+        if (refresh) {
+            recordRefresh(error == null);
+        }
+        if (error != null) {
+            flight.completeExceptionally(error);
         } else {
-            return doTokenExchange();
+            flight.complete(exchanged);
+        }
+    }
+
+    private void recordRefresh(boolean success) {
+        if (config.metrics != null) {
+            config.metrics.recordRefresh(success);
         }
     }
 
@@ -78,50 +175,43 @@ public class JDOA2Impl extends Reliqua implements JDOA2 {
         return Optional.ofNullable(token);
     }
 
-    private DiscordToken doTokenExchange(RequestParams params) {
-        Request request = new Request.Builder()
-                .post(RequestBody.create(MediaType.parse("application/x-www-form-urlencoded"), params.toEncodedString()))
-                .url(TOKEN_BASE_URL)
-                .header("User-Agent", USER_AGENT)
-                .build();
-        Call call = getHttpClient().newCall(request);
+    private DiscordToken doTokenExchange(RequestBody body) {
+        Call call = getHttpClient().newCall(createTokenRequest(body));
         try (Response response = call.execute()) {
-            String body = response.body().string();
-            int statusCode = response.code();
-            if (statusCode == 429) {
-                RateLimitedResponse rateLimited = jsonMapper.readValue(body, RateLimitedResponse.class);
-                if (rateLimited.getMessage() != null && rateLimited.getRetryAfter() != 0) {
-                    try {
-                        Thread.sleep(rateLimited.getRetryAfter());
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                    return doTokenExchange(params);
-                } else {
-                    throw new RateLimitedException("Rate limited");
-                }
-            } else if (statusCode != 200) {
-                ErrorResponse errorResponse = jsonMapper.readValue(body, ErrorResponse.class);
-                if (errorResponse.getError() != null) {
-                    throw new AuthenticationException(errorResponse.getError() + ":" +
-                            (errorResponse.getMessage() == null ? "no message specified" : errorResponse.getMessage()));
-                }
-            }
-            DiscordToken token = jsonMapper.readValue(body, DiscordToken.class);
-            this.token = token;
-            this.tokenGeneratedIn = System.currentTimeMillis();
-            return token;
+            return readToken(response);
         } catch (IOException e) {
             throw new AuthenticationException(e);
         }
     }
 
-    private RequestParams getTokenRequestParams() {
-        RequestParams params = new RequestParams();
-        params.put("redirect_uri", applicationInfo.getRedirectUri());
-        params.put("client_id", applicationInfo.getClientId());
-        params.put("client_secret", applicationInfo.getClientSecret());
-        return params;
+    private Request createTokenRequest(RequestBody body) {
+        return new Request.Builder()
+                .post(body)
+                .url(config.tokenUrl)
+                .header("User-Agent", USER_AGENT)
+                .tag(BucketRateLimiter.Api.class, BucketRateLimiter.Api.INSTANCE)
+                .tag(Metrics.class, config.metrics)
+                .tag(RetryPolicy.class, config.retryPolicy)
+                .tag(CircuitBreaker.class, config.circuitBreaker)
+                .build();
+    }
+
+    private DiscordToken readToken(Response response) throws IOException {
+        checkStatus(response);
+        DiscordToken token = config.jsonMapper.readValue(response.body().byteStream(), DiscordToken.class);
+        this.tokenGeneratedIn = System.currentTimeMillis();
+        this.token = token;
+        if (config.tokenListener != null) {
+            config.tokenListener.accept(this);
+        }
+        return token;
+    }
+
+    private RequestBody createTokenBody(boolean refresh) {
+        if (refresh) {
+            return config.tokenForm.refreshToken(token.getRefreshToken());
+        }
+        return config.tokenForm.authorizationCode(authCode);
     }
 
     @Override
@@ -129,114 +219,203 @@ public class JDOA2Impl extends Reliqua implements JDOA2 {
         if (token == null) {
             return false;
         }
-        return System.currentTimeMillis() < (this.tokenGeneratedIn + (token.getExpiresIn() * 1000));
+        return System.currentTimeMillis() < getTokenExpiresAt();
     }
 
-    @Override
-    public PendingRequest<CurrentUser> getCurrentUser() {
-        if (!JDOA2Utils.contains("identify", token.parseScopes())) {
-            throw new MissingScopeException("identify");
+    public void restoreToken(DiscordToken token, long tokenGeneratedIn) {
+        this.tokenGeneratedIn = tokenGeneratedIn;
+        this.token = token;
+    }
+
+    public long getTokenGeneratedIn() {
+        return tokenGeneratedIn;
+    }
+
+    public long getTokenExpiresAt() {
+        DiscordToken token = this.token;
+        if (token == null) {
+            return 0;
         }
-        Objects.requireNonNull(token, "No token exchange was started.");
-        if (!isCurrentTokenValid()) {
-            throw new IllegalArgumentException("Current token not valid.");
+        return this.tokenGeneratedIn + (token.getExpiresIn() * 1000);
+    }
+
+    @Override
+    public PendingRequest<CurrentUser> getCurrentUser(boolean coalesce) {
+        return config.newRequest(createUserRequest(coalesce)).build(this::readCurrentUser, null);
+    }
+
+    @Override
+    @Nonnull
+    public CompletionStage<CurrentUser> getCurrentUserAsync(boolean coalesce) {
+        Request request;
+        try {
+            request = createUserRequest(coalesce);
+        } catch (RuntimeException e) {
+            return failed(e);
         }
-        return createRequest(new Request.Builder()
+        return enqueue(request, coalesce, this::readCurrentUser);
+    }
+
+    private Request createUserRequest(boolean coalesce) {
+        checkToken(Scope.IDENTIFY);
+        return new Request.Builder()
                 .get()
-                .url(USER_IDENTIFICATION_URL)
+                .url(config.userIdentificationUrl)
                 .header("User-Agent", USER_AGENT)
                 .header("Authorization", "Bearer " + token.getAccessToken())
-        ).build((response) -> {
-            String body = response.body().string();
-            int statusCode = response.code();
-            if (statusCode == 429) {
-                throw new RateLimitedException("Rate limited");
-            } else if (statusCode != 200) {
-                ErrorResponse errorResponse = jsonMapper.readValue(body, ErrorResponse.class);
-                if (errorResponse.getError() != null) {
-                    throw new AuthenticationException(errorResponse.getError() + ":" +
-                            (errorResponse.getMessage() == null ? "no message specified" : errorResponse.getMessage()));
-                }
-            }
-            JsonNode node = jsonMapper.readTree(body);
-            return new CurrentUser(
-                    node.get("id").asText(),
-                    node.get("username").asText(),
-                    node.get("discriminator").asText(),
-                    optString(node, "avatar"),
-                    node.get("mfa_enabled").asBoolean(),
-                    optBoolean(node, "verified"),
-                    optString(node, "email"),
-                    node.get("locale").asText(),
-                    node.get("flags").asInt()
-            );
-        }, null);
+                .tag(ResponseCache.class, config.responseCache)
+                .tag(RequestCoalescer.class, coalesce ? config.coalescer : null)
+                .tag(BucketRateLimiter.Api.class, BucketRateLimiter.Api.INSTANCE)
+                .tag(Metrics.class, config.metrics)
+                .tag(RetryPolicy.class, config.retryPolicy)
+                .tag(CircuitBreaker.class, config.circuitBreaker)
+                .build();
     }
 
-    private String optString(JsonNode node, String path) {
-        JsonNode pathNode = node.get(path);
-        return pathNode == null ? null : pathNode.asText();
+    private CurrentUser readCurrentUser(Response response) throws IOException {
+        checkStatus(response);
+        try (JsonParser parser = config.jsonMapper.getFactory().createParser(response.body().byteStream())) {
+            return ModelDecoder.readCurrentUser(parser);
+        }
     }
 
-    private boolean optBoolean(JsonNode node, String path) {
-        JsonNode pathNode = node.get(path);
-        return pathNode != null && pathNode.asBoolean();
+    @Override
+    public PendingRequest<GuildSet> getCurrentUserGuilds(boolean coalesce) {
+        return config.newRequest(createGuildsRequest(coalesce)).build(this::readGuilds, null);
     }
 
     @Override
-    public PendingRequest<List<Guild>> getCurrentUserGuilds() {
-        if (!JDOA2Utils.contains("guilds", token.parseScopes())) {
-            throw new MissingScopeException("guilds");
+    @Nonnull
+    public CompletionStage<GuildSet> getCurrentUserGuildsAsync(boolean coalesce) {
+        Request request;
+        try {
+            request = createGuildsRequest(coalesce);
+        } catch (RuntimeException e) {
+            return failed(e);
         }
+        return enqueue(request, coalesce, this::readGuilds);
+    }
+
+    private Request createGuildsRequest(boolean coalesce) {
+        checkToken(Scope.GUILDS);
+        return new Request.Builder()
+                .get()
+                .url(config.userGuildsUrl)
+                .header("User-Agent", USER_AGENT)
+                .header("Authorization", "Bearer " + token.getAccessToken())
+                .tag(ResponseCache.class, config.responseCache)
+                .tag(RequestCoalescer.class, coalesce ? config.coalescer : null)
+                .tag(BucketRateLimiter.Api.class, BucketRateLimiter.Api.INSTANCE)
+                .tag(Metrics.class, config.metrics)
+                .tag(RetryPolicy.class, config.retryPolicy)
+                .tag(CircuitBreaker.class, config.circuitBreaker)
+                .build();
+    }
+
+    private GuildSet readGuilds(Response response) throws IOException {
+        checkStatus(response);
+        try (JsonParser parser = config.jsonMapper.getFactory().createParser(response.body().byteStream())) {
+            return ModelDecoder.readGuilds(parser);
+        }
+    }
+
+    private void checkToken(Scope scope) {
         Objects.requireNonNull(token, "No token exchange was started.");
+        if (!token.hasScope(scope)) {
+            throw new MissingScopeException(scope.getName());
+        }
         if (!isCurrentTokenValid()) {
             throw new IllegalArgumentException("Current token not valid.");
         }
-        return createRequest(new Request.Builder()
-                .get()
-                .url(USER_GUILDS_URL)
-                .header("User-Agent", USER_AGENT)
-                .header("Authorization", "Bearer " + token.getAccessToken())
-        ).build((response) -> {
-            String body = response.body().string();
-            int responseCode = response.code();
-            if (responseCode == 429) {
-                throw new RateLimitedException("Rate limited");
-            } else if (responseCode != 200) {
-                ErrorResponse errorResponse = jsonMapper.readValue(body, ErrorResponse.class);
-                if (errorResponse.getError() != null) {
-                    throw new AuthenticationException(errorResponse.getError() + ":" +
-                            (errorResponse.getMessage() == null ? "no message specified" : errorResponse.getMessage()));
-                }
+    }
+
+    private void checkStatus(Response response) throws IOException {
+        int statusCode = response.code();
+        if (statusCode == 429) {
+            // the rate limiter already held and retried this request, give up
+            throw new RateLimitedException("Rate limited");
+        } else if (statusCode != 200) {
+            ErrorResponse errorResponse = config.jsonMapper.readValue(response.body().byteStream(), ErrorResponse.class);
+            if (errorResponse.getError() != null) {
+                throw new AuthenticationException(errorResponse.getError() + ":" +
+                        (errorResponse.getMessage() == null ? "no message specified" : errorResponse.getMessage()));
+            }
+        }
+    }
+
+    private <T> CompletionStage<T> enqueue(Request request, boolean coalesce, ResponseHandler<T> handler) {
+        if (coalesce) {
+            return config.coalescer.coalesce(request, () -> enqueue(request, handler));
+        }
+        return enqueue(request, handler);
+    }
+
+    private <T> CompletableFuture<T> enqueue(Request request, ResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        BucketRateLimiter.schedule(getHttpClient(), request, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(new AuthenticationException(e));
             }
-            ArrayNode arrayNode = (ArrayNode) jsonMapper.readTree(body);
-            List<Guild> guilds = new ArrayList<>();
-            for (JsonNode node : arrayNode) {
-                guilds.add(new Guild(node.get("id").asText(),
-                        node.get("name").asText(),
-                        optString(node, "icon"),
-                        node.get("owner").asBoolean(),
-                        node.get("permissions").asInt()));
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    future.complete(handler.handle(r));
+                } catch (IOException e) {
+                    future.completeExceptionally(new AuthenticationException(e));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
             }
-            return guilds;
-        }, null);
+        });
+        return future;
+    }
+
+    private static <T> CompletionStage<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    private interface ResponseHandler<T> {
+
+        T handle(Response response) throws IOException;
+    }
+
+    @Override
+    @Nonnull
+    public CompletionStage<Void> warmUp() {
+        return WarmUp.run(getHttpClient(), config.jsonMapper, config.baseApiUrl, USER_AGENT);
+    }
+
+    @Override
+    public void invalidateCache() {
+        DiscordToken token = this.token;
+        if (config.responseCache != null && token != null) {
+            config.responseCache.invalidate("Bearer " + token.getAccessToken());
+        }
     }
 
     @Override
     @Nonnull
     public OkHttpClient getHttpClient() {
-        return super.getClient();
+        return config.getClient();
     }
 
     @Override
     @Nonnull
     public ObjectMapper getJsonMapper() {
-        return jsonMapper;
+        return config.jsonMapper;
     }
 
     @Override
     @Nonnull
     public ApplicationInfo getApplicationInfo() {
-        return applicationInfo;
+        return new ApplicationInfo(authCode, config.redirectUri, config.clientId, config.clientSecret);
+    }
+
+    public String getAuthCode() {
+        return authCode;
     }
 }
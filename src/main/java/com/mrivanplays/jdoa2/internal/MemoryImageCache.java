@@ -0,0 +1,40 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of image bytes, bounded by their total size.
+ */
+public class MemoryImageCache {
+
+    private final Map<String, byte[]> images = new LinkedHashMap<>(64, 0.75f, true);
+    private final long maxBytes;
+    private long size;
+
+    public MemoryImageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(String key) {
+        return images.get(key);
+    }
+
+    public synchronized void put(String key, byte[] image) {
+        if (image.length > maxBytes) {
+            return;
+        }
+        byte[] previous = images.put(key, image);
+        size += image.length - (previous == null ? 0 : previous.length);
+        for (Iterator<byte[]> iterator = images.values().iterator(); size > maxBytes && iterator.hasNext(); ) {
+            size -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+
+    public synchronized void invalidate() {
+        images.clear();
+        size = 0;
+    }
+}
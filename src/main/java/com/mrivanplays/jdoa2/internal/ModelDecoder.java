@@ -0,0 +1,143 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mrivanplays.jdoa2.CurrentUser;
+import com.mrivanplays.jdoa2.Guild;
+import com.mrivanplays.jdoa2.GuildSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes discord api models straight from a streaming {@link JsonParser}, without building an intermediate body
+ * string or json tree.
+ */
+public final class ModelDecoder {
+
+    private ModelDecoder() {
+    }
+
+    public static CurrentUser readCurrentUser(JsonParser parser) throws IOException {
+        expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+        String username = null, discriminator = null, avatar = null, email = null, locale = null;
+        long id = 0;
+        boolean twoFAEnabled = false, verified = false;
+        int flags = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = readLong(parser);
+                    break;
+                case "username":
+                    username = parser.getValueAsString();
+                    break;
+                case "discriminator":
+                    discriminator = parser.getValueAsString();
+                    break;
+                case "avatar":
+                    avatar = parser.getValueAsString();
+                    break;
+                case "mfa_enabled":
+                    twoFAEnabled = parser.getValueAsBoolean();
+                    break;
+                case "verified":
+                    verified = parser.getValueAsBoolean();
+                    break;
+                case "email":
+                    email = parser.getValueAsString();
+                    break;
+                case "locale":
+                    locale = parser.getValueAsString();
+                    break;
+                case "flags":
+                    flags = parser.getValueAsInt();
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return new CurrentUser(id, username, discriminator, avatar, twoFAEnabled, verified, email, locale, flags);
+    }
+
+    public static GuildSet readGuilds(JsonParser parser) throws IOException {
+        expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+        List<Guild> guilds = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            expect(parser, token, JsonToken.START_OBJECT);
+            guilds.add(readGuild(parser));
+        }
+        return new GuildSet(guilds);
+    }
+
+    private static Guild readGuild(JsonParser parser) throws IOException {
+        String name = null, icon = null;
+        long id = 0, permissions = 0;
+        boolean owner = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id":
+                    id = readLong(parser);
+                    break;
+                case "name":
+                    name = parser.getValueAsString();
+                    break;
+                case "icon":
+                    icon = parser.getValueAsString();
+                    break;
+                case "owner":
+                    owner = parser.getValueAsBoolean();
+                    break;
+                case "permissions":
+                    permissions = readLong(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return new Guild(id, name, icon, owner, permissions);
+    }
+
+    /**
+     * Reads snowflakes and permissions, which discord sends as strings, without allocating a string for them.
+     */
+    private static long readLong(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            return parser.getValueAsLong();
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length == 0) {
+            throw notALong(parser);
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw notALong(parser);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static JsonParseException notALong(JsonParser parser) throws IOException {
+        return new JsonParseException(parser, "Expected a 64-bit number but got \"" + parser.getText() + "\"");
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but got " + actual);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.github.natanbc.reliqua.limiter.RateLimiter;
+
+import javax.annotation.Nonnull;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+/**
+ * Reliqua rate limiter of a single pending request, so submitting it reserves its rate limit slots up front and
+ * enqueues it once they're due, through {@link BucketRateLimiter#reserve(OkHttpClient, Request, ScheduledCall,
+ * Runnable)}, rather than holding a dispatcher thread while waiting.
+ */
+class PendingRequestLimiter extends RateLimiter {
+
+    private final OkHttpClient client;
+    private final Request request;
+    private final ScheduledCall scheduled;
+
+    PendingRequestLimiter(OkHttpClient client, Request request, ScheduledCall scheduled) {
+        this.client = client;
+        this.request = request;
+        this.scheduled = scheduled;
+    }
+
+    @Override
+    public void queue(@Nonnull Runnable task) {
+        BucketRateLimiter.reserve(client, request, scheduled, task);
+    }
+
+    @Override
+    public int getRemainingRequests() {
+        // tracked per bucket by the BucketRateLimiter, not per request
+        return -1;
+    }
+
+    @Override
+    public long getTimeUntilReset() {
+        return 0;
+    }
+}
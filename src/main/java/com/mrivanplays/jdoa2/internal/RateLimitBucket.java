@@ -0,0 +1,139 @@
+package com.mrivanplays.jdoa2.internal;
+
+import okhttp3.Response;
+
+/**
+ * State of a single discord rate limit bucket, as reported by the <code>X-RateLimit-*</code> headers.
+ */
+public class RateLimitBucket {
+
+    private int limit = -1;
+    private int remaining = -1;
+    private long resetAt;
+    private long resetAfter;
+    // reservations made against the windows after the current one, sent in order as those windows open
+    private int reserved;
+
+    /**
+     * Reserves a request slot in this bucket.
+     *
+     * @param now current time millis
+     * @return how many milliseconds the request should be held before it's sent, <code>0</code> if it may be sent
+     * right away
+     */
+    public synchronized long reserve(long now) {
+        roll(now);
+        if (remaining < 0 || limit <= 0) {
+            // we don't know about this bucket's limits yet
+            return 0;
+        }
+        if (reserved == 0 && remaining > 0) {
+            remaining--;
+            return 0;
+        }
+        // the current window is used up, queue behind the reservations already made against the next windows
+        long delay = (resetAt - now) + (reserved / limit) * window();
+        reserved++;
+        return delay;
+    }
+
+    private void roll(long now) {
+        while (now >= resetAt) {
+            if (reserved == 0 || limit <= 0) {
+                reserved = 0;
+                remaining = limit;
+                resetAt = now + resetAfter;
+                return;
+            }
+            // the window which just opened is taken by the reservations made against it first
+            int served = Math.min(reserved, limit);
+            reserved -= served;
+            remaining = limit - served;
+            resetAt += window();
+        }
+    }
+
+    private long window() {
+        return Math.max(resetAfter, 1);
+    }
+
+    /**
+     * Blocks this bucket until the specified time.
+     *
+     * @param until time millis until which no requests should be sent
+     */
+    public synchronized void block(long until) {
+        if (until > resetAt) {
+            resetAt = until;
+        }
+        remaining = 0;
+    }
+
+    /**
+     * Takes over the reservations made against the windows after the current one of the specified bucket, which this
+     * bucket replaces. Call after this bucket learned its limits, so the reservations are queued against them.
+     *
+     * @param other replaced bucket
+     * @param now   current time millis
+     */
+    public void absorb(RateLimitBucket other, long now) {
+        int otherReserved;
+        synchronized (other) {
+            other.roll(now);
+            otherReserved = other.reserved;
+        }
+        synchronized (this) {
+            roll(now);
+            if (limit > 0) {
+                reserved += otherReserved;
+            }
+        }
+    }
+
+    /**
+     * Updates the bucket from the response's rate limit headers, if any.
+     *
+     * @param response response
+     * @param now      current time millis
+     */
+    public synchronized void update(Response response, long now) {
+        String limitHeader = response.header("X-RateLimit-Limit");
+        String remainingHeader = response.header("X-RateLimit-Remaining");
+        String resetAfterHeader = response.header("X-RateLimit-Reset-After");
+        if (limitHeader == null || remainingHeader == null || resetAfterHeader == null) {
+            return;
+        }
+        try {
+            int headerLimit = Integer.parseInt(limitHeader);
+            int headerRemaining = Integer.parseInt(remainingHeader);
+            long headerResetAfter = (long) Math.ceil(Double.parseDouble(resetAfterHeader) * 1000);
+            long headerResetAt = now + headerResetAfter;
+
+            limit = headerLimit;
+            if (resetAfter < headerResetAfter) {
+                resetAfter = headerResetAfter;
+            }
+            if (headerResetAt > resetAt + 1000 || now >= resetAt) {
+                // discord opened a new window, trust what it says
+                resetAt = headerResetAt;
+                remaining = headerRemaining;
+            } else {
+                // requests we reserved may still be in flight, keep the lower count
+                remaining = Math.min(remaining, headerRemaining);
+            }
+        } catch (NumberFormatException ignored) {
+            // malformed headers, keep the last known state
+        }
+    }
+
+    /**
+     * Returns whenever this bucket has no pending limits, and thus can be forgotten.
+     *
+     * @param now current time millis
+     * @return <code>true</code> if idle, <code>false</code> otherwise
+     */
+    public synchronized boolean isIdle(long now) {
+        long reservedWindows = limit <= 0 ? 0 : (reserved + limit - 1) / limit;
+        return now >= resetAt + reservedWindows * window();
+    }
+}
@@ -9,12 +9,12 @@ public class RateLimitedResponse {
     private String message;
 
     @JsonProperty("retry_after")
-    private int retryAfter;
+    private double retryAfter;
 
     @JsonCreator
     public RateLimitedResponse(@JsonProperty("global") boolean global,
                                @JsonProperty("message") String message,
-                               @JsonProperty("retry_after") int retryAfter) {
+                               @JsonProperty("retry_after") double retryAfter) {
         this.global = global;
         this.message = message;
         this.retryAfter = retryAfter;
@@ -28,7 +28,7 @@ public class RateLimitedResponse {
         return message;
     }
 
-    public int getRetryAfter() {
+    public double getRetryAfter() {
         return retryAfter;
     }
 }
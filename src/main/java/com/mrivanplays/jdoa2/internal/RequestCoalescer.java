@@ -0,0 +1,184 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Per session coalescing of concurrent identical GET requests. Requests opt in by carrying their session's coalescer
+ * as a tag, which the {@link #INTERCEPTOR} looks for.
+ * <p>
+ * Blocking calls which arrive while an identical call is in flight wait for it in the interceptor and get a copy of
+ * its response, rather than making their own call. The response is only buffered if such calls joined before it
+ * arrived, otherwise its body is streamed to the caller as usual. Asynchronous calls are coalesced one level higher, with {@link
+ * #coalesce(Request, Supplier)}, so they also share the decoded result and never reserve a rate limit slot.
+ */
+public class RequestCoalescer {
+
+    public static final Interceptor INTERCEPTOR = chain -> {
+        RequestCoalescer coalescer = chain.request().tag(RequestCoalescer.class);
+        // scheduled calls are coalesced before they're scheduled, and their attempts may end without a response
+        if (coalescer == null || !"GET".equals(chain.request().method())
+                || ScheduledCall.isDeferrable(chain.request())) {
+            return chain.proceed(chain.request());
+        }
+        return coalescer.intercept(chain);
+    };
+
+    private final Map<String, SharedCall> calls = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<?>> results = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the result of the in flight call identical to the specified request, or starts a new call with the
+     * specified supplier if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> coalesce(Request request, Supplier<CompletableFuture<T>> call) {
+        String key = getKey(request);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<T> existing = (CompletableFuture<T>) results.putIfAbsent(key, result);
+        if (existing != null) {
+            return copy(existing);
+        }
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = new CompletableFuture<>();
+            started.completeExceptionally(e);
+        }
+        started.whenComplete((value, error) -> {
+            // removed before completing, so callers arriving afterwards start a fresh call
+            results.remove(key, result);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        return copy(result);
+    }
+
+    private Response intercept(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        String key = getKey(request);
+        SharedCall call = new SharedCall();
+        SharedCall existing;
+        while ((existing = calls.putIfAbsent(key, call)) != null) {
+            if (existing.join()) {
+                return await(existing.response).toResponse(request);
+            }
+            // the call got its response without anyone joining, and is going away
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            calls.remove(key, call);
+            call.close();
+            call.response.completeExceptionally(e);
+            throw e;
+        }
+        calls.remove(key, call);
+        if (call.close() == 0) {
+            // nobody to share with, so the body is streamed rather than buffered
+            return response;
+        }
+        SharedResponse shared;
+        try (ResponseBody body = response.body()) {
+            shared = new SharedResponse(response, body.contentType(), body.bytes());
+        } catch (IOException | RuntimeException e) {
+            call.response.completeExceptionally(e);
+            throw e;
+        }
+        call.response.complete(shared);
+        return shared.toResponse(request);
+    }
+
+    private static SharedResponse await(CompletableFuture<SharedResponse> call) throws IOException {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static String getKey(Request request) {
+        return request.url() + "|" + request.header("Authorization") + "|" + request.header("If-None-Match");
+    }
+
+    static <T> CompletableFuture<T> copy(CompletableFuture<T> future) {
+        // callers get their own future, so one of them completing or cancelling it doesn't affect the others
+        CompletableFuture<T> copy = new CompletableFuture<>();
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                copy.completeExceptionally(error);
+            } else {
+                copy.complete(value);
+            }
+        });
+        return copy;
+    }
+
+    private static class SharedCall {
+
+        final CompletableFuture<SharedResponse> response = new CompletableFuture<>();
+        // -1 once the call stopped accepting followers
+        private final AtomicInteger followers = new AtomicInteger();
+
+        boolean join() {
+            while (true) {
+                int count = followers.get();
+                if (count < 0) {
+                    return false;
+                }
+                if (followers.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        int close() {
+            return followers.getAndSet(-1);
+        }
+    }
+
+    private static class SharedResponse {
+
+        private final Response response;
+        private final MediaType contentType;
+        private final byte[] body;
+
+        SharedResponse(Response response, MediaType contentType, byte[] body) {
+            this.response = response;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        Response toResponse(Request request) {
+            return response.newBuilder()
+                    .request(request)
+                    .body(ResponseBody.create(contentType, body))
+                    .build();
+        }
+    }
+}
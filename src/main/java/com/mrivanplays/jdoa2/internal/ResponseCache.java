@@ -0,0 +1,190 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Cache of successful GET responses, shared by all sessions of an application and keyed by url and authorization, so
+ * sessions never see each other's responses. Requests opt in by carrying the cache as a tag, which the {@link
+ * #INTERCEPTOR} looks for.
+ * <p>
+ * Entries live for the configured ttl, or less if discord sends a shorter <code>Cache-Control: max-age</code>.
+ * <code>no-store</code> responses and responses bigger than the configured maximum bytes aren't cached. Expired
+ * entries with an <code>ETag</code> are revalidated with <code>If-None-Match</code> instead of being fetched again.
+ * <p>
+ * Once the cached responses take up more than the configured maximum total bytes, expired entries are dropped first,
+ * then arbitrary ones, until they fit again.
+ */
+public class ResponseCache {
+
+    public static final Interceptor INTERCEPTOR = chain -> {
+        ResponseCache cache = chain.request().tag(ResponseCache.class);
+        if (cache == null || !"GET".equals(chain.request().method())) {
+            return chain.proceed(chain.request());
+        }
+        return cache.intercept(chain);
+    };
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final long maxBytes;
+    private final long maxTotalBytes;
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    public ResponseCache(long ttlMillis, long maxBytes, long maxTotalBytes) {
+        this.ttlMillis = ttlMillis;
+        this.maxBytes = maxBytes;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    /**
+     * Returns whenever the response to the specified request is cached and fresh, so it'd be answered without
+     * contacting discord.
+     *
+     * @param request request
+     * @return whenever cached and fresh
+     */
+    public boolean isFresh(Request request) {
+        Entry entry = entries.get(getKey(request));
+        return entry != null && System.currentTimeMillis() < entry.expiresAt;
+    }
+
+    /**
+     * Drops the cached responses of the specified authorization.
+     *
+     * @param authorization authorization header value
+     */
+    public void invalidate(String authorization) {
+        String suffix = "|" + authorization;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getKey().endsWith(suffix)) {
+                remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private Response intercept(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        String key = getKey(request);
+        Entry entry = entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && now < entry.expiresAt) {
+            return entry.toResponse(request);
+        }
+        if (entry != null && entry.etag != null) {
+            request = request.newBuilder().header("If-None-Match", entry.etag).build();
+        }
+
+        Response response = chain.proceed(request);
+        if (entry != null && response.code() == 304) {
+            response.close();
+            Entry revalidated = new Entry(entry.body, entry.contentType, entry.etag, now + getTtl(response));
+            put(key, revalidated);
+            return revalidated.toResponse(request);
+        }
+        if (response.code() != 200) {
+            return response;
+        }
+        CacheControl cacheControl = response.cacheControl();
+        ResponseBody body = response.body();
+        if (cacheControl.noStore() || body.contentLength() > maxBytes) {
+            remove(key);
+            return response;
+        }
+        byte[] bytes = body.bytes();
+        MediaType contentType = body.contentType();
+        Response copy = response.newBuilder().body(ResponseBody.create(contentType, bytes)).build();
+        String etag = response.header("ETag");
+        long ttl = getTtl(response);
+        if (bytes.length <= maxBytes && (ttl > 0 || etag != null)) {
+            put(key, new Entry(bytes, contentType, etag, now + ttl));
+        } else {
+            remove(key);
+        }
+        return copy;
+    }
+
+    private void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        long total = totalBytes.addAndGet(entry.body.length - (previous == null ? 0 : previous.body.length));
+        if (total > maxTotalBytes) {
+            trim();
+        }
+    }
+
+    private void remove(String key) {
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes.addAndGet(-previous.body.length);
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            totalBytes.addAndGet(-entry.body.length);
+        }
+    }
+
+    private synchronized void trim() {
+        long now = System.currentTimeMillis();
+        for (int pass = 0; pass < 2 && totalBytes.get() > maxTotalBytes; pass++) {
+            for (Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+                 totalBytes.get() > maxTotalBytes && iterator.hasNext(); ) {
+                Map.Entry<String, Entry> entry = iterator.next();
+                // expired entries go first, they're only worth a revalidation
+                if (pass == 1 || now >= entry.getValue().expiresAt) {
+                    remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static String getKey(Request request) {
+        return request.url() + "|" + request.header("Authorization");
+    }
+
+    private long getTtl(Response response) {
+        CacheControl cacheControl = response.cacheControl();
+        if (cacheControl.noCache()) {
+            return 0;
+        }
+        int maxAge = cacheControl.maxAgeSeconds();
+        return maxAge >= 0 ? Math.min(ttlMillis, maxAge * 1000L) : ttlMillis;
+    }
+
+    private static final class Entry {
+
+        final byte[] body;
+        final MediaType contentType;
+        final String etag;
+        final long expiresAt;
+
+        Entry(byte[] body, MediaType contentType, String etag, long expiresAt) {
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        Response toResponse(Request request) {
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(contentType, body))
+                    .build();
+        }
+    }
+}
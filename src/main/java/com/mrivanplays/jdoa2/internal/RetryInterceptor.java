@@ -0,0 +1,123 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.mrivanplays.jdoa2.CircuitBreaker;
+import com.mrivanplays.jdoa2.CircuitBreakerOpenException;
+import com.mrivanplays.jdoa2.Metrics;
+import com.mrivanplays.jdoa2.RetryPolicy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Retries requests after connection failures and 5xx responses according to their {@link RetryPolicy}, and fails them
+ * fast while their endpoint's {@link CircuitBreaker} is open. Requests opt in by carrying the policy and the breaker
+ * as tags.
+ * <p>
+ * Every attempt goes through the rate limiter on its own, and waiting requests of the coalescer share the outcome of
+ * all attempts. Blocking calls wait for their backoff on their thread, while scheduled calls hand the failed attempt
+ * back to the scheduler, which enqueues the retry once the backoff passed, so no thread waits on a failing endpoint.
+ */
+public final class RetryInterceptor {
+
+    public static final Interceptor INTERCEPTOR = chain -> {
+        RetryPolicy policy = chain.request().tag(RetryPolicy.class);
+        CircuitBreaker breaker = chain.request().tag(CircuitBreaker.class);
+        if ((policy == null || policy == RetryPolicy.none()) && breaker == null) {
+            return chain.proceed(chain.request());
+        }
+        return intercept(chain, policy == null ? RetryPolicy.none() : policy, breaker);
+    };
+
+    private RetryInterceptor() {
+    }
+
+    private static Response intercept(Interceptor.Chain chain, RetryPolicy policy, CircuitBreaker breaker)
+            throws IOException {
+        Request request = chain.request();
+        Metrics.Endpoint endpoint = BucketRateLimiter.getEndpoint(request);
+        Metrics metrics = request.tag(Metrics.class);
+        if (endpoint == null) {
+            breaker = null;
+        }
+        ScheduledCall scheduled = request.tag(ScheduledCall.class);
+        boolean deferrable = scheduled != null && scheduled.deferrable;
+        long start = deferrable ? scheduled.start : System.currentTimeMillis();
+        for (int attempt = deferrable ? scheduled.retries + 1 : 1; ; attempt++) {
+            if (breaker != null && !breaker.tryAcquire(endpoint)) {
+                throw new CircuitBreakerOpenException("Circuit breaker of " + endpoint + " is open");
+            }
+            Response response = null;
+            IOException failure = null;
+            try {
+                response = chain.proceed(request);
+            } catch (ScheduledCall.Deferred e) {
+                // never sent, it waits for the rate limits
+                throw e;
+            } catch (InterruptedIOException e) {
+                if (!(e instanceof SocketTimeoutException)) {
+                    // interrupted by the caller, not a failure of discord
+                    throw e;
+                }
+                failure = e;
+            } catch (IOException e) {
+                failure = e;
+            }
+            boolean serverError = response != null && response.code() >= 500;
+            if (breaker != null) {
+                breaker.record(endpoint, failure == null && !serverError);
+            }
+            if (failure == null && !serverError) {
+                return response;
+            }
+
+            long backoff = policy.getBackoffMillis(attempt);
+            long deadline = policy.getDeadlineMillis();
+            if (attempt >= policy.getMaxAttempts() || !isRetryable(request, response, failure)
+                    || (deadline > 0 && System.currentTimeMillis() + backoff - start >= deadline)) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            if (metrics != null) {
+                metrics.recordRetry();
+            }
+            if (deferrable) {
+                scheduled.retries++;
+                scheduled.defer(backoff);
+                if (failure != null) {
+                    throw failure;
+                }
+                return response;
+            }
+            if (response != null) {
+                response.close();
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry");
+            }
+        }
+    }
+
+    private static boolean isRetryable(Request request, Response response, IOException failure) {
+        if ("GET".equals(request.method())) {
+            return true;
+        }
+        // token exchanges aren't idempotent, only retry them if discord couldn't have processed them
+        if (failure != null) {
+            return failure instanceof ConnectException || failure instanceof UnknownHostException;
+        }
+        int code = response.code();
+        return code == 502 || code == 503 || code == 504;
+    }
+}
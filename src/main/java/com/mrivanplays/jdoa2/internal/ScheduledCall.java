@@ -0,0 +1,100 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Request;
+
+/**
+ * State of a request whose rate limit slots are reserved ahead of the call, by {@link BucketRateLimiter#schedule} or
+ * a pending request's limiter, carried as a tag. The interceptors consume the reservation instead of reserving again.
+ * <p>
+ * Calls started by {@link BucketRateLimiter#schedule} are also deferrable: rather than sleeping on a dispatcher thread
+ * until a 429 or a failed attempt may be retried, the interceptors mark the call for a retry and let the attempt
+ * complete, and the scheduler enqueues the next attempt once it's due.
+ */
+final class ScheduledCall {
+
+    final boolean deferrable;
+    final long start = System.currentTimeMillis();
+    private final AtomicInteger reservations = new AtomicInteger();
+    // attempts deferred so far, by the retry policy and after a 429
+    volatile int retries;
+    volatile int rateLimitRetries;
+    private volatile long retryAfter = -1;
+
+    ScheduledCall(boolean deferrable) {
+        this.deferrable = deferrable;
+    }
+
+    static boolean isDeferrable(Request request) {
+        ScheduledCall scheduled = request.tag(ScheduledCall.class);
+        return scheduled != null && scheduled.deferrable;
+    }
+
+    void reserved() {
+        reservations.incrementAndGet();
+    }
+
+    /**
+     * Consumes a reservation made for this call.
+     *
+     * @return whenever a slot was reserved
+     */
+    boolean consumeReservation() {
+        while (true) {
+            int count = reservations.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (reservations.compareAndSet(count, count - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Marks the call to be attempted again after the specified delay, once the current attempt completed.
+     *
+     * @param delay delay in millis
+     */
+    void defer(long delay) {
+        retryAfter = Math.max(delay, 0);
+    }
+
+    /**
+     * Marks the call to be attempted again right away, reserving new slots, and returns the exception which ends the
+     * current attempt without sending it.
+     *
+     * @return exception to throw
+     */
+    Deferred deferUnsent() {
+        defer(0);
+        return new Deferred();
+    }
+
+    boolean isDeferred() {
+        return retryAfter >= 0;
+    }
+
+    /**
+     * Returns the delay of the deferred attempt and clears it.
+     *
+     * @return delay in millis
+     */
+    long takeRetryAfter() {
+        long delay = retryAfter;
+        retryAfter = -1;
+        return delay;
+    }
+
+    /**
+     * Ends an attempt which wasn't sent, as it has to wait for the rate limits first.
+     */
+    static final class Deferred extends IOException {
+
+        Deferred() {
+            super("Deferred until the rate limits permit it");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.natanbc.reliqua.Reliqua;
+import com.github.natanbc.reliqua.util.PendingRequestBuilder;
+import com.mrivanplays.jdoa2.CircuitBreaker;
+import com.mrivanplays.jdoa2.JDOA2Builder;
+import com.mrivanplays.jdoa2.Metrics;
+import com.mrivanplays.jdoa2.RetryPolicy;
+
+import java.util.function.Consumer;
+
+import okhttp3.Request;
+
+/**
+ * Application level configuration, shared by all sessions of a session manager, so that a session only holds its auth
+ * code and token state. Immutable once built.
+ */
+public final class SessionConfig extends Reliqua {
+
+    final String clientId;
+    final String clientSecret;
+    final String redirectUri;
+    final ObjectMapper jsonMapper;
+    final Metrics metrics;
+    final RetryPolicy retryPolicy;
+    final CircuitBreaker circuitBreaker;
+    final Consumer<JDOA2Impl> tokenListener;
+
+    final String baseApiUrl;
+    final String userIdentificationUrl;
+    final String userGuildsUrl;
+    final String tokenUrl;
+    final TokenForm tokenForm;
+
+    // keyed by url and authorization, so sharing them between sessions never mixes their responses
+    final RequestCoalescer coalescer = new RequestCoalescer();
+    final ResponseCache responseCache;
+
+    public SessionConfig(String clientId, String clientSecret, String redirectUri, JDOA2Builder builder,
+                         Consumer<JDOA2Impl> tokenListener) {
+        super(HttpClients.install(builder.httpClient(), builder.virtualThreads()));
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.redirectUri = redirectUri;
+        this.jsonMapper = builder.jsonMapper();
+        this.metrics = builder.metrics();
+        this.retryPolicy = builder.retryPolicy();
+        this.circuitBreaker = builder.circuitBreaker();
+        if (builder.responseCacheTtlMillis() > 0) {
+            this.responseCache = new ResponseCache(builder.responseCacheTtlMillis(), builder.responseCacheMaxBytes(),
+                    builder.responseCacheMaxTotalBytes());
+        } else {
+            this.responseCache = null;
+        }
+        this.tokenListener = tokenListener;
+        this.baseApiUrl = builder.baseUrl();
+        this.userIdentificationUrl = baseApiUrl + "/users/@me";
+        this.userGuildsUrl = userIdentificationUrl + "/guilds";
+        this.tokenUrl = baseApiUrl + "/oauth2/token";
+        this.tokenForm = new TokenForm(clientId, clientSecret, redirectUri);
+    }
+
+    PendingRequestBuilder newRequest(Request request) {
+        // submitted pending requests reserve their rate limit slots instead of waiting on a dispatcher thread
+        ScheduledCall scheduled = new ScheduledCall(false);
+        Request tagged = request.newBuilder().tag(ScheduledCall.class, scheduled).build();
+        return createRequest(tagged).setRateLimiter(new PendingRequestLimiter(getClient(), tagged, scheduled));
+    }
+}
@@ -1,73 +1,219 @@
 package com.mrivanplays.jdoa2.internal;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mrivanplays.jdoa2.ApplicationInfo;
+import com.mrivanplays.jdoa2.BulkResultListener;
+import com.mrivanplays.jdoa2.DiscordToken;
 import com.mrivanplays.jdoa2.JDOA2;
+import com.mrivanplays.jdoa2.SessionEvictionListener;
 import com.mrivanplays.jdoa2.SessionManager;
 import com.mrivanplays.jdoa2.SessionManagerBuilder;
+import com.mrivanplays.jdoa2.TokenStore;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import javax.annotation.Nonnull;
 
 import okhttp3.OkHttpClient;
 
 public class SessionManagerImpl implements SessionManager {
 
-    private Map<String, JDOA2> sessions;
-    private final OkHttpClient httpClient;
-    private final ObjectMapper objectMapper;
-    private final ApplicationInfo.Builder cachedInfoBuilder;
+    private final SessionStore sessions;
+    private final TokenRefresher tokenRefresher;
+    private final TokenStore tokenStore;
+    private final SessionConfig config;
+    private final int bulkParallelism;
+    private volatile boolean closed;
 
     public SessionManagerImpl(SessionManagerBuilder builder) {
-        sessions = new HashMap<>();
-        cachedInfoBuilder = ApplicationInfo.builder()
-                .clientId(builder.clientId())
-                .clientSecret(builder.clientSecret())
-                .redirectUri(builder.redirectUri());
-        httpClient = builder.httpClient();
-        objectMapper = builder.jsonMapper();
+        if (builder.refreshTokensAheadMillis() > 0) {
+            tokenRefresher = new TokenRefresher(builder.refreshTokensAheadMillis(), builder.refreshParallelism(),
+                    this::isManaged);
+        } else {
+            tokenRefresher = null;
+        }
+        tokenStore = builder.tokenStore();
+        SessionEvictionListener evictionListener = builder.evictionListener();
+        sessions = new SessionStore(builder.maximumSessions(), builder.expireAfterWriteNanos(),
+                builder.expireAfterAccessNanos(), (authCode, session, cause) -> {
+            forget(authCode, session);
+            if (evictionListener != null) {
+                evictionListener.onEviction(authCode, session, cause);
+            }
+        });
+        // built once, every session shares it
+        config = new SessionConfig(builder.clientId(), builder.clientSecret(), builder.redirectUri(), JDOA2.builder()
+                .jsonMapper(builder.jsonMapper())
+                .httpClient(builder.httpClient())
+                .virtualThreads(builder.virtualThreads())
+                .responseCacheTtl(builder.responseCacheTtlMillis(), TimeUnit.MILLISECONDS)
+                .responseCacheMaxBytes(builder.responseCacheMaxBytes())
+                .responseCacheMaxTotalBytes(builder.responseCacheMaxTotalBytes())
+                .metrics(builder.metrics())
+                .retryPolicy(builder.retryPolicy())
+                .circuitBreaker(builder.circuitBreaker())
+                .baseUrl(builder.baseUrl()), this::onToken);
+        bulkParallelism = builder.bulkParallelism();
+        if (builder.metrics() != null) {
+            builder.metrics().setActiveSessions(() -> sessions.asMap().size());
+        }
+        if (tokenStore != null) {
+            rehydrate();
+        }
+    }
+
+    private void rehydrate() {
+        for (TokenStore.Entry entry : tokenStore.load()) {
+            JDOA2Impl session = (JDOA2Impl) createSession(entry.getAuthCode());
+            session.restoreToken(entry.getToken(), entry.getTokenGeneratedIn());
+            if (!sessions.putIfAbsent(entry.getAuthCode(), session)) {
+                continue;
+            }
+            if (tokenRefresher != null) {
+                // expired tokens are due right away, and get refreshed with bounded parallelism
+                tokenRefresher.accept(session);
+            }
+        }
     }
 
     @Override
     @Nonnull
     public Map<String, JDOA2> getSessions() {
-        return Collections.unmodifiableMap(sessions);
+        return Collections.unmodifiableMap(sessions.asMap());
     }
 
     @Override
     @Nonnull
     public JDOA2 newSession(@Nonnull String authCode) {
         Objects.requireNonNull(authCode, "authCode");
-        if (sessions.containsKey(authCode)) {
+        JDOA2 jdoa2 = createSession(authCode);
+        if (!sessions.putIfAbsent(authCode, jdoa2)) {
             throw new IllegalArgumentException("Session with auth code '" + authCode + "' already exists");
         }
-        JDOA2 jdoa2 = JDOA2.builder()
-                .applicationInfo(cachedInfoBuilder.authCode(authCode).build())
-                .jsonMapper(objectMapper)
-                .httpClient(httpClient)
-                .build();
-        sessions.put(authCode, jdoa2);
         return jdoa2;
     }
 
+    @Override
+    @Nonnull
+    public JDOA2 getOrCreateSession(@Nonnull String authCode) {
+        Objects.requireNonNull(authCode, "authCode");
+        return sessions.computeIfAbsent(authCode, this::createSession);
+    }
+
+    private JDOA2 createSession(String authCode) {
+        return new JDOA2Impl(config, authCode);
+    }
+
+    private void onToken(JDOA2Impl session) {
+        // sessions which were removed or evicted, or outlived the manager, must not be brought back by a late token
+        if (!isManaged(session)) {
+            return;
+        }
+        if (tokenStore != null) {
+            try {
+                session.getCurrentToken().ifPresent(token -> tokenStore.store(
+                        session.getAuthCode(), token, session.getTokenGeneratedIn()));
+            } catch (RuntimeException ignored) {
+                // a failing store must not fail the token exchange, the token is still usable
+            }
+        }
+        if (tokenRefresher != null) {
+            tokenRefresher.accept(session);
+        }
+    }
+
+    private boolean isManaged(JDOA2Impl session) {
+        return !closed && sessions.asMap().get(session.getAuthCode()) == session;
+    }
+
+    private void forget(String authCode, JDOA2 session) {
+        if (session == null) {
+            return;
+        }
+        if (tokenRefresher != null) {
+            tokenRefresher.cancel((JDOA2Impl) session);
+        }
+        if (tokenStore != null && !closed) {
+            try {
+                tokenStore.remove(authCode);
+            } catch (RuntimeException ignored) {
+                // a failing store must not fail the removal or eviction of the session
+            }
+        }
+    }
+
     @Override
     public Optional<JDOA2> getSession(@Nonnull String authCode) {
         return Optional.ofNullable(sessions.get(authCode));
     }
 
+    @Override
+    public Optional<JDOA2> removeSession(@Nonnull String authCode) {
+        JDOA2 session = sessions.remove(authCode);
+        forget(authCode, session);
+        return Optional.ofNullable(session);
+    }
+
+    @Override
+    @Nonnull
+    public <T> CompletionStage<Void> bulk(@Nonnull Collection<String> authCodes,
+                                          @Nonnull Function<JDOA2, ? extends CompletionStage<T>> operation,
+                                          @Nonnull BulkResultListener<? super T> listener) {
+        Objects.requireNonNull(authCodes, "authCodes");
+        Objects.requireNonNull(operation, "operation");
+        Objects.requireNonNull(listener, "listener");
+        return new BulkOperation<>(authCodes.iterator(), sessions::get, operation, listener).start(bulkParallelism);
+    }
+
+    @Override
+    @Nonnull
+    public CompletionStage<Void> refreshTokensExpiringWithin(long duration, @Nonnull TimeUnit unit,
+                                                             @Nonnull BulkResultListener<? super DiscordToken> listener) {
+        long deadline = System.currentTimeMillis() + unit.toMillis(duration);
+        List<String> expiring = new ArrayList<>();
+        for (Map.Entry<String, JDOA2> entry : sessions.asMap().entrySet()) {
+            JDOA2Impl session = (JDOA2Impl) entry.getValue();
+            if (session.getCurrentToken().isPresent() && session.getTokenExpiresAt() <= deadline) {
+                expiring.add(entry.getKey());
+            }
+        }
+        return bulk(expiring, JDOA2::doTokenExchangeUsingRefreshTokenAsync, listener);
+    }
+
+    @Override
+    @Nonnull
+    public CompletionStage<Void> warmUp() {
+        return WarmUp.run(config.getClient(), config.jsonMapper, config.baseApiUrl, JDOA2Impl.USER_AGENT);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        sessions.close();
+        if (tokenRefresher != null) {
+            tokenRefresher.shutdown();
+        }
+        if (tokenStore != null) {
+            tokenStore.close();
+        }
+    }
+
     @Nonnull
     @Override
     public OkHttpClient getHttpClient() {
-        return httpClient;
+        return config.getClient();
     }
 
     @Nonnull
     @Override
     public ObjectMapper getJsonMapper() {
-        return objectMapper;
+        return config.jsonMapper;
     }
 }
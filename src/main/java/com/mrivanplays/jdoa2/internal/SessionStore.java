@@ -0,0 +1,325 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.mrivanplays.jdoa2.JDOA2;
+import com.mrivanplays.jdoa2.SessionEvictionListener;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Session registry with optional size and time bound eviction.
+ * <p>
+ * Lookups are lock free. The least recently used order is kept in a linked list guarded by a lock, which reads only
+ * reorder when the lock is free, so under heavy contention the order is approximate. Expired sessions are dropped when
+ * looked up, and once per second a background thread pops the expired heads of the write ordered queue and of the
+ * least recently used list, so expiry never costs a scan of all sessions, and its listeners never run on callers.
+ */
+public class SessionStore {
+
+    private final ConcurrentHashMap<String, Node> map = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Node head = new Node(null, null, 0);
+    // removed sessions stay queued until they reach the head
+    private final Queue<Node> writeOrder = new ConcurrentLinkedQueue<>();
+    private final Map<String, JDOA2> view = new View();
+    private final ScheduledExecutorService maintenance;
+
+    private final long maximumSize;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final boolean ordered;
+    private final SessionEvictionListener listener;
+
+    public SessionStore(long maximumSize, long expireAfterWriteNanos, long expireAfterAccessNanos,
+                        SessionEvictionListener listener) {
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = expireAfterWriteNanos;
+        this.expireAfterAccessNanos = expireAfterAccessNanos;
+        this.listener = listener;
+        this.ordered = maximumSize > 0 || expireAfterAccessNanos > 0;
+        head.prev = head;
+        head.next = head;
+        if (expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0) {
+            maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "JDOA2 Session Expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            maintenance.scheduleWithFixedDelay(this::expire, 1, 1, TimeUnit.SECONDS);
+        } else {
+            maintenance = null;
+        }
+    }
+
+    public JDOA2 get(String key) {
+        Node node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (isExpired(node, now)) {
+            List<Node> evicted = new ArrayList<>(1);
+            evict(node, evicted);
+            notifyEvicted(evicted, SessionEvictionListener.Cause.EXPIRED);
+            return null;
+        }
+        node.accessTime = now;
+        if (ordered && lock.tryLock()) {
+            try {
+                if (node.prev != null) {
+                    unlink(node);
+                    linkLast(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Puts the session if no session is present for the specified key.
+     *
+     * @param key   key
+     * @param value session
+     * @return <code>true</code> if put, <code>false</code> if a session was already present
+     */
+    public boolean putIfAbsent(String key, JDOA2 value) {
+        if (get(key) != null) {
+            return false;
+        }
+        Node node = new Node(key, value, System.nanoTime());
+        if (map.putIfAbsent(key, node) != null) {
+            return false;
+        }
+        afterWrite(node);
+        return true;
+    }
+
+    public JDOA2 computeIfAbsent(String key, Function<String, JDOA2> factory) {
+        JDOA2 existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+        Node[] created = new Node[1];
+        Node node = map.computeIfAbsent(key, k -> created[0] = new Node(k, factory.apply(k), System.nanoTime()));
+        if (node == created[0]) {
+            afterWrite(node);
+        }
+        return node.value;
+    }
+
+    public JDOA2 remove(String key) {
+        Node node = map.remove(key);
+        if (node == null) {
+            return null;
+        }
+        unlinkLocked(node);
+        return node.value;
+    }
+
+    public Map<String, JDOA2> asMap() {
+        return view;
+    }
+
+    /**
+     * Stops the background expiry.
+     */
+    public void close() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+    }
+
+    private void afterWrite(Node node) {
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.add(node);
+        }
+        List<Node> evicted = new ArrayList<>(0);
+        if (ordered) {
+            lock.lock();
+            try {
+                if (map.get(node.key) == node) {
+                    linkLast(node);
+                }
+                while (maximumSize > 0 && map.size() > maximumSize && head.next != head) {
+                    Node eldest = head.next;
+                    unlink(eldest);
+                    if (map.remove(eldest.key, eldest)) {
+                        evicted.add(eldest);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        notifyEvicted(evicted, SessionEvictionListener.Cause.SIZE);
+    }
+
+    // called by the maintenance thread only, so the heads it peeks are the ones it polls
+    private void expire() {
+        long now = System.nanoTime();
+        List<Node> evicted = new ArrayList<>();
+        Node node;
+        while ((node = writeOrder.peek()) != null) {
+            if (map.get(node.key) == node && now - node.writeTime < expireAfterWriteNanos) {
+                break;
+            }
+            writeOrder.poll();
+            evict(node, evicted);
+        }
+        if (expireAfterAccessNanos > 0) {
+            lock.lock();
+            try {
+                // a session read while the lock was busy may still sit ahead of expired ones, which then expire late
+                while (head.next != head && isExpired(head.next, now)) {
+                    Node eldest = head.next;
+                    unlink(eldest);
+                    if (map.remove(eldest.key, eldest)) {
+                        evicted.add(eldest);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (listener == null) {
+            return;
+        }
+        for (Node expired : evicted) {
+            try {
+                listener.onEviction(expired.key, expired.value, SessionEvictionListener.Cause.EXPIRED);
+            } catch (RuntimeException ignored) {
+                // a failing listener must not stop the expiry
+            }
+        }
+    }
+
+    private boolean isExpired(Node node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private void evict(Node node, List<Node> evicted) {
+        if (map.remove(node.key, node)) {
+            unlinkLocked(node);
+            evicted.add(node);
+        }
+    }
+
+    private void notifyEvicted(List<Node> evicted, SessionEvictionListener.Cause cause) {
+        if (listener == null) {
+            return;
+        }
+        for (Node node : evicted) {
+            listener.onEviction(node.key, node.value, cause);
+        }
+    }
+
+    private void unlinkLocked(Node node) {
+        if (!ordered) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (node.prev != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void linkLast(Node node) {
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node {
+
+        final String key;
+        final JDOA2 value;
+        final long writeTime;
+        volatile long accessTime;
+
+        // guarded by lock
+        Node prev, next;
+
+        Node(String key, JDOA2 value, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+            this.accessTime = writeTime;
+        }
+    }
+
+    private final class View extends AbstractMap<String, JDOA2> {
+
+        private final Set<Entry<String, JDOA2>> entrySet = new AbstractSet<Entry<String, JDOA2>>() {
+            @Override
+            public Iterator<Entry<String, JDOA2>> iterator() {
+                Iterator<Node> nodes = map.values().iterator();
+                return new Iterator<Entry<String, JDOA2>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return nodes.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, JDOA2> next() {
+                        Node node = nodes.next();
+                        return new SimpleImmutableEntry<>(node.key, node.value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+        };
+
+        @Override
+        public Set<Entry<String, JDOA2>> entrySet() {
+            return entrySet;
+        }
+
+        @Override
+        public JDOA2 get(Object key) {
+            Node node = map.get(key);
+            return node == null ? null : node.value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+    }
+}
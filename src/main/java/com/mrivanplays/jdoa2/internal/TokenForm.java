@@ -0,0 +1,87 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Form bodies of the token endpoint. Everything but the auth code or refresh token is the same for all exchanges of an
+ * application, so it's encoded into bytes once, and every body only encodes its own value, which usually needs no
+ * escaping, and writes both straight to the sink.
+ */
+public final class TokenForm {
+
+    private static final MediaType FORM = MediaType.parse("application/x-www-form-urlencoded");
+
+    private final byte[] authorizationCodePrefix;
+    private final byte[] refreshTokenPrefix;
+
+    public TokenForm(String clientId, String clientSecret, String redirectUri) {
+        String common = "redirect_uri=" + encode(redirectUri)
+                + "&client_id=" + encode(clientId)
+                + "&client_secret=" + encode(clientSecret);
+        this.authorizationCodePrefix = (common + "&grant_type=authorization_code&code=")
+                .getBytes(StandardCharsets.US_ASCII);
+        this.refreshTokenPrefix = (common + "&grant_type=refresh_token&refresh_token=")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public RequestBody authorizationCode(String code) {
+        return new Body(authorizationCodePrefix, encode(code));
+    }
+
+    public RequestBody refreshToken(String refreshToken) {
+        return new Body(refreshTokenPrefix, encode(refreshToken));
+    }
+
+    static String encode(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!isUnreserved(value.charAt(i))) {
+                try {
+                    return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+                } catch (UnsupportedEncodingException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+        // auth codes and tokens are alphanumeric, so this returns them as they are
+        return value;
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '*';
+    }
+
+    private static final class Body extends RequestBody {
+
+        private final byte[] prefix;
+        private final String value;
+
+        Body(byte[] prefix, String value) {
+            this.prefix = prefix;
+            this.value = value;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return FORM;
+        }
+
+        @Override
+        public long contentLength() {
+            // encoded values are ascii
+            return prefix.length + value.length();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            sink.write(prefix).writeUtf8(value);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Refreshes the tokens of sessions ahead of their expiry, in the background.
+ * <p>
+ * All sessions share a single timer thread, which only hands due sessions over to asynchronous refreshes. At most
+ * <code>parallelism</code> refreshes are in flight at once, the rest wait in a queue without holding any thread.
+ */
+public class TokenRefresher implements Consumer<JDOA2Impl> {
+
+    private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<JDOA2Impl, ScheduledFuture<?>> tasks = new ConcurrentHashMap<>();
+    private final Queue<JDOA2Impl> pending = new ConcurrentLinkedQueue<>();
+    private final Semaphore permits;
+    private final long refreshAheadMillis;
+    private final Predicate<JDOA2Impl> managed;
+
+    public TokenRefresher(long refreshAheadMillis, int parallelism, Predicate<JDOA2Impl> managed) {
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.permits = new Semaphore(Math.max(parallelism, 1));
+        this.managed = managed;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "JDOA2 Token Refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedules the refresh of the session's current token. Called every time the session receives a new token.
+     *
+     * @param session session
+     */
+    @Override
+    public void accept(JDOA2Impl session) {
+        long expiresAt = session.getTokenExpiresAt();
+        long lifetime = expiresAt - session.getTokenGeneratedIn();
+        // never refresh earlier than half way through the token's lifetime, or short lived tokens would loop
+        long ahead = Math.min(refreshAheadMillis, lifetime / 2);
+        long jitter = ahead / 10 > 0 ? ThreadLocalRandom.current().nextLong(ahead / 10) : 0;
+        schedule(session, expiresAt - ahead - jitter - System.currentTimeMillis());
+    }
+
+    /**
+     * Cancels the scheduled refresh of the session, if any.
+     *
+     * @param session session
+     */
+    public void cancel(JDOA2Impl session) {
+        ScheduledFuture<?> task = tasks.remove(session);
+        if (task != null) {
+            task.cancel(false);
+        }
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void schedule(JDOA2Impl session, long delay) {
+        ScheduledFuture<?> task = timer.schedule(() -> enqueue(session), Math.max(delay, 0), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = tasks.put(session, task);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private void enqueue(JDOA2Impl session) {
+        if (!managed.test(session)) {
+            tasks.remove(session);
+            return;
+        }
+        pending.add(session);
+        drain();
+    }
+
+    private void drain() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            JDOA2Impl session = pending.poll();
+            if (session == null) {
+                permits.release();
+                continue;
+            }
+            session.doTokenExchangeUsingRefreshTokenAsync().whenComplete((token, error) -> {
+                permits.release();
+                if (error != null) {
+                    retry(session);
+                }
+                drain();
+            });
+        }
+    }
+
+    private void retry(JDOA2Impl session) {
+        long untilExpiry = session.getTokenExpiresAt() - System.currentTimeMillis();
+        if (untilExpiry <= 0 || !managed.test(session)) {
+            // the token is gone, the user has to go through OAuth2 again
+            tasks.remove(session);
+            return;
+        }
+        long delay = Math.min(RETRY_DELAY, untilExpiry / 2);
+        schedule(session, delay + ThreadLocalRandom.current().nextLong(Math.max(delay / 10, 1)));
+    }
+}
@@ -0,0 +1,21 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Java 8 variant, virtual threads don't exist. Replaced on Java 21+ by the variant in the multi-release part of the
+ * jar.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return false;
+    }
+
+    public static ExecutorService newExecutor(String name) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+    }
+}
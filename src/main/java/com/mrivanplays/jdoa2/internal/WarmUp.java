@@ -0,0 +1,68 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mrivanplays.jdoa2.DiscordToken;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Pays the first use costs of talking to discord ahead of the first user: class loading and deserializer
+ * introspection of the models, and DNS, TCP, TLS and HTTP/2 setup of a pooled connection.
+ */
+public final class WarmUp {
+
+    private static final String TOKEN = "{\"access_token\":\"\",\"expires_in\":0,\"refresh_token\":\"\","
+            + "\"scope\":\"identify\",\"token_type\":\"Bearer\"}";
+    private static final String ERROR = "{\"error\":\"\",\"error_description\":\"\"}";
+    private static final String USER = "{\"id\":\"0\",\"username\":\"\",\"discriminator\":\"0\"}";
+    private static final String GUILDS = "[{\"id\":\"0\",\"name\":\"\",\"owner\":false,\"permissions\":\"0\"}]";
+
+    private WarmUp() {
+    }
+
+    public static CompletableFuture<Void> run(OkHttpClient client, ObjectMapper jsonMapper, String baseUrl,
+                                              String userAgent) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            jsonMapper.readValue(TOKEN, DiscordToken.class);
+            jsonMapper.readValue(ERROR, ErrorResponse.class);
+            try (JsonParser parser = jsonMapper.getFactory().createParser(USER)) {
+                ModelDecoder.readCurrentUser(parser);
+            }
+            try (JsonParser parser = jsonMapper.getFactory().createParser(GUILDS)) {
+                ModelDecoder.readGuilds(parser);
+            }
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        // an unauthenticated, tiny endpoint, so the pooled connection is all that's left of it
+        Request request = new Request.Builder()
+                .get()
+                .url(baseUrl + "/gateway")
+                .header("User-Agent", userAgent)
+                .build();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                future.complete(null);
+            }
+        });
+        return future;
+    }
+}
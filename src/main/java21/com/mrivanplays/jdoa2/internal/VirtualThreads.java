@@ -0,0 +1,21 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21+ variant, starting a new virtual thread per task.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return true;
+    }
+
+    public static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + " ", 0).factory());
+    }
+}
@@ -0,0 +1,113 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.mrivanplays.jdoa2.DiscordToken;
+import com.mrivanplays.jdoa2.TokenStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileTokenStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysStoredTokens() throws IOException {
+        Path path = directory.resolve("tokens.log");
+        try (FileTokenStore store = new FileTokenStore(path)) {
+            store.store("a", token("a1"), 1);
+            store.store("b", token("b1"), 2);
+            store.store("a", token("a2"), 3);
+            store.remove("b");
+        }
+        try (FileTokenStore store = new FileTokenStore(path)) {
+            Map<String, TokenStore.Entry> entries = load(store);
+            assertEquals(1, entries.size());
+            assertEquals("a2", entries.get("a").getToken().getAccessToken());
+            assertEquals(3, entries.get("a").getTokenGeneratedIn());
+        }
+    }
+
+    @Test
+    void dropsTornTail() throws IOException {
+        Path path = directory.resolve("tokens.log");
+        try (FileTokenStore store = new FileTokenStore(path)) {
+            store.store("a", token("a1"), 1);
+        }
+        // a record cut off by a crash mid write: its header claims more bytes than follow
+        Files.write(path, new byte[] {0, 0, 0, 64, 1, 2, 3, 4, 1, 0}, StandardOpenOption.APPEND);
+        try (FileTokenStore store = new FileTokenStore(path)) {
+            assertEquals(Arrays.asList("a"), Arrays.asList(load(store).keySet().toArray()));
+            store.store("b", token("b1"), 2);
+        }
+        // the torn bytes were cut off, so the record written after them is replayed too
+        try (FileTokenStore store = new FileTokenStore(path)) {
+            Map<String, TokenStore.Entry> entries = load(store);
+            assertEquals(2, entries.size());
+            assertEquals("b1", entries.get("b").getToken().getAccessToken());
+        }
+    }
+
+    @Test
+    void replaysAfterCompaction() throws IOException {
+        Path path = directory.resolve("tokens.log");
+        char[] padding = new char[16 * 1024];
+        Arrays.fill(padding, 'x');
+        long written = 0;
+        try (FileTokenStore store = new FileTokenStore(path)) {
+            for (int i = 0; i < 200; i++) {
+                String key = "session" + (i % 4);
+                store.store(key, token(i + new String(padding)), i);
+                written += padding.length;
+            }
+        }
+        assertTrue(Files.size(path) < written, "log wasn't compacted");
+        try (FileTokenStore store = new FileTokenStore(path)) {
+            Map<String, TokenStore.Entry> entries = load(store);
+            assertEquals(4, entries.size());
+            for (int i = 196; i < 200; i++) {
+                TokenStore.Entry entry = entries.get("session" + (i % 4));
+                assertEquals(i, entry.getTokenGeneratedIn());
+                assertEquals(i + new String(padding), entry.getToken().getAccessToken());
+            }
+        }
+    }
+
+    @Test
+    void ignoresUpdatesAfterClose() throws IOException {
+        Path path = directory.resolve("tokens.log");
+        FileTokenStore store = new FileTokenStore(path);
+        store.store("a", token("a1"), 1);
+        store.close();
+        store.store("b", token("b1"), 2);
+        store.remove("a");
+        try (FileTokenStore reopened = new FileTokenStore(path)) {
+            assertEquals(Arrays.asList("a"), Arrays.asList(load(reopened).keySet().toArray()));
+        }
+    }
+
+    private static Map<String, TokenStore.Entry> load(TokenStore store) {
+        List<TokenStore.Entry> entries = store.load();
+        Map<String, TokenStore.Entry> byAuthCode = new HashMap<>();
+        for (TokenStore.Entry entry : entries) {
+            byAuthCode.put(entry.getAuthCode(), entry);
+        }
+        return byAuthCode;
+    }
+
+    private static DiscordToken token(String accessToken) {
+        return new DiscordToken(accessToken, 604800, "refresh", "identify guilds", "Bearer");
+    }
+}
@@ -0,0 +1,122 @@
+package com.mrivanplays.jdoa2.internal;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitBucketTest {
+
+    private static final long NOW = 1_000_000;
+
+    @Test
+    void reservesFreelyWhileLimitsUnknown() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, bucket.reserve(NOW));
+        }
+    }
+
+    @Test
+    void takesRemainingSlotsOfTheWindow() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        bucket.update(response(5, 2, "1"), NOW);
+        assertEquals(0, bucket.reserve(NOW));
+        assertEquals(0, bucket.reserve(NOW));
+        assertEquals(1000, bucket.reserve(NOW));
+    }
+
+    @Test
+    void queuesReservationsAcrossWindows() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        bucket.update(response(2, 0, "1"), NOW);
+        assertEquals(1000, bucket.reserve(NOW));
+        assertEquals(1000, bucket.reserve(NOW));
+        assertEquals(2000, bucket.reserve(NOW));
+        assertEquals(2000, bucket.reserve(NOW));
+        assertEquals(3000, bucket.reserve(NOW));
+    }
+
+    @Test
+    void rollServesQueuedReservationsFirst() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        bucket.update(response(2, 0, "1"), NOW);
+        bucket.reserve(NOW);
+        bucket.reserve(NOW);
+        bucket.reserve(NOW);
+        // the window opening at NOW + 1000 is taken by the first two, the third waits for the next one
+        assertEquals(1000, bucket.reserve(NOW + 1000));
+        assertEquals(2000, bucket.reserve(NOW + 1000));
+        // every reservation was served, so the window after them is free again
+        assertEquals(0, bucket.reserve(NOW + 4000));
+    }
+
+    @Test
+    void updateKeepsLowerRemainingWithinWindow() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        bucket.update(response(5, 5, "1"), NOW);
+        bucket.reserve(NOW);
+        bucket.reserve(NOW);
+        bucket.reserve(NOW);
+        // a response to a request sent before the reservations reports more remaining slots than there are
+        bucket.update(response(5, 4, "0.99"), NOW + 10);
+        assertEquals(0, bucket.reserve(NOW + 10));
+        assertEquals(0, bucket.reserve(NOW + 10));
+        assertTrue(bucket.reserve(NOW + 10) > 0);
+    }
+
+    @Test
+    void updateTrustsNewWindow() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        bucket.update(response(1, 0, "1"), NOW);
+        bucket.update(response(1, 1, "1"), NOW + 1000);
+        assertEquals(0, bucket.reserve(NOW + 1000));
+    }
+
+    @Test
+    void blockHoldsUntilTheSpecifiedTime() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        bucket.update(response(5, 5, "1"), NOW);
+        bucket.block(NOW + 3000);
+        assertEquals(3000, bucket.reserve(NOW));
+    }
+
+    @Test
+    void absorbQueuesBehindTheReplacedBucket() {
+        RateLimitBucket route = new RateLimitBucket();
+        route.update(response(2, 0, "1"), NOW);
+        route.reserve(NOW);
+        route.reserve(NOW);
+        route.reserve(NOW);
+        RateLimitBucket shared = new RateLimitBucket();
+        shared.update(response(2, 0, "1"), NOW);
+        shared.absorb(route, NOW);
+        assertEquals(2000, shared.reserve(NOW));
+        assertEquals(3000, shared.reserve(NOW));
+    }
+
+    @Test
+    void idleOnceReservationsAreServed() {
+        RateLimitBucket bucket = new RateLimitBucket();
+        bucket.update(response(1, 0, "1"), NOW);
+        bucket.reserve(NOW);
+        assertFalse(bucket.isIdle(NOW + 1000));
+        assertTrue(bucket.isIdle(NOW + 2000));
+    }
+
+    private static Response response(int limit, int remaining, String resetAfter) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("https://discord.com/api/users/@me").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .header("X-RateLimit-Limit", Integer.toString(limit))
+                .header("X-RateLimit-Remaining", Integer.toString(remaining))
+                .header("X-RateLimit-Reset-After", resetAfter)
+                .build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.mrivanplays.jdoa2.internal;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTest {
+
+    private final MockWebServer server = new MockWebServer();
+    private final OkHttpClient client = HttpClients.install(new OkHttpClient());
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void start() throws IOException {
+        server.start();
+    }
+
+    @AfterEach
+    void shutdown() throws IOException {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    void followersShareTheLeadersResponse() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(5, TimeUnit.SECONDS);
+                return new MockResponse().setBody("{\"id\":\"1\"}");
+            }
+        });
+        Future<String> leader = executor.submit(this::fetch);
+        // the leader's call is in flight once the server got it
+        server.takeRequest(5, TimeUnit.SECONDS);
+        Future<String> follower = executor.submit(this::fetch);
+        Thread.sleep(500);
+        release.countDown();
+        assertEquals("{\"id\":\"1\"}", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("{\"id\":\"1\"}", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void streamsTheResponseWithoutFollowers() throws IOException {
+        server.enqueue(new MockResponse().setBody("{\"id\":\"1\"}").setBodyDelay(2, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        try (Response response = client.newCall(request()).execute()) {
+            // buffering would have waited for the delayed body
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+            assertEquals("{\"id\":\"1\"}", response.body().string());
+        }
+    }
+
+    @Test
+    void sequentialCallsAreNotCoalesced() throws IOException {
+        server.enqueue(new MockResponse().setBody("{\"id\":\"1\"}"));
+        server.enqueue(new MockResponse().setBody("{\"id\":\"2\"}"));
+        assertEquals("{\"id\":\"1\"}", fetch());
+        assertEquals("{\"id\":\"2\"}", fetch());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private String fetch() throws IOException {
+        try (Response response = client.newCall(request()).execute()) {
+            return response.body().string();
+        }
+    }
+
+    private Request request() {
+        return new Request.Builder()
+                .url(server.url("/api/users/@me"))
+                .header("Authorization", "Bearer token")
+                .tag(RequestCoalescer.class, coalescer)
+                .build();
+    }
+}
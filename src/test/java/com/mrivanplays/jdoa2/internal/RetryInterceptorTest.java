@@ -0,0 +1,119 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.mrivanplays.jdoa2.RetryPolicy;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RetryInterceptorTest {
+
+    private static final RetryPolicy POLICY = RetryPolicy.builder()
+            .maxAttempts(3)
+            .backoff(1, 1, TimeUnit.MILLISECONDS)
+            .build();
+
+    private final MockWebServer server = new MockWebServer();
+    // okhttp's own retries would hide how many attempts the interceptor made
+    private final OkHttpClient client = HttpClients.install(new OkHttpClient.Builder()
+            .retryOnConnectionFailure(false)
+            .build());
+
+    @BeforeEach
+    void start() throws IOException {
+        server.start();
+    }
+
+    @AfterEach
+    void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void retriesGetAfterServerError() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("{}"));
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void retriesGetAfterDisconnect() throws IOException {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setBody("{}"));
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        try (Response response = client.newCall(get()).execute()) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    void retriesTokenExchangeDiscordDidNotProcess() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("{}"));
+        try (Response response = client.newCall(tokenExchange()).execute()) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void doesNotRetryTokenExchangeAfterInternalServerError() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setBody("{}"));
+        try (Response response = client.newCall(tokenExchange()).execute()) {
+            assertEquals(500, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void doesNotRetryTokenExchangeAfterDisconnect() {
+        // discord may have redeemed the code before the connection dropped
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST));
+        server.enqueue(new MockResponse().setBody("{}"));
+        assertThrows(IOException.class, () -> client.newCall(tokenExchange()).execute().close());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private Request get() {
+        return new Request.Builder()
+                .url(server.url("/api/users/@me"))
+                .tag(RetryPolicy.class, POLICY)
+                .build();
+    }
+
+    private Request tokenExchange() {
+        return new Request.Builder()
+                .url(server.url("/api/oauth2/token"))
+                .post(new FormBody.Builder().add("grant_type", "authorization_code").add("code", "code").build())
+                .tag(RetryPolicy.class, POLICY)
+                .build();
+    }
+}
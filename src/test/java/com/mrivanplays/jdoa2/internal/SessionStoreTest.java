@@ -0,0 +1,98 @@
+package com.mrivanplays.jdoa2.internal;
+
+import com.mrivanplays.jdoa2.SessionEvictionListener;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// the stored sessions are never used by the store, so the tests store nulls and look at the keys
+class SessionStoreTest {
+
+    private final List<String> evictions = new CopyOnWriteArrayList<>();
+    private final List<Thread> evictionThreads = new CopyOnWriteArrayList<>();
+    private final SessionEvictionListener listener = (authCode, session, cause) -> {
+        evictions.add(authCode + ":" + cause);
+        evictionThreads.add(Thread.currentThread());
+    };
+    private SessionStore store;
+
+    @AfterEach
+    void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverMaximumSize() {
+        store = new SessionStore(2, 0, 0, listener);
+        store.putIfAbsent("a", null);
+        store.putIfAbsent("b", null);
+        store.get("a");
+        store.putIfAbsent("c", null);
+        assertEquals(Arrays.asList("b:SIZE"), evictions);
+        assertTrue(store.asMap().containsKey("a"));
+        assertTrue(store.asMap().containsKey("c"));
+        assertEquals(2, store.asMap().size());
+    }
+
+    @Test
+    void removedSessionsAreNotReported() {
+        store = new SessionStore(1, 0, 0, listener);
+        store.putIfAbsent("a", null);
+        store.remove("a");
+        store.putIfAbsent("b", null);
+        assertTrue(evictions.isEmpty());
+        assertEquals(1, store.asMap().size());
+    }
+
+    @Test
+    void expiresAfterWriteOnBackgroundThread() throws InterruptedException {
+        store = new SessionStore(0, TimeUnit.MILLISECONDS.toNanos(200), 0, listener);
+        store.putIfAbsent("a", null);
+        awaitEvictions(1);
+        assertEquals(Arrays.asList("a:EXPIRED"), evictions);
+        assertFalse(store.asMap().containsKey("a"));
+        assertNotEquals(Thread.currentThread(), evictionThreads.get(0));
+    }
+
+    @Test
+    void expiresAfterAccessUnlessRead() throws InterruptedException {
+        store = new SessionStore(0, 0, TimeUnit.MILLISECONDS.toNanos(800), listener);
+        store.putIfAbsent("read", null);
+        store.putIfAbsent("unread", null);
+        for (int i = 0; i < 10; i++) {
+            Thread.sleep(200);
+            store.get("read");
+        }
+        assertEquals(Arrays.asList("unread:EXPIRED"), evictions);
+        assertTrue(store.asMap().containsKey("read"));
+    }
+
+    @Test
+    void dropsExpiredSessionOnLookup() throws InterruptedException {
+        store = new SessionStore(0, TimeUnit.MILLISECONDS.toNanos(50), 0, listener);
+        store.putIfAbsent("a", null);
+        Thread.sleep(100);
+        store.get("a");
+        assertEquals(Arrays.asList("a:EXPIRED"), evictions);
+        assertEquals(Thread.currentThread(), evictionThreads.get(0));
+    }
+
+    private void awaitEvictions(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (evictions.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+}